@@ -0,0 +1,240 @@
+package i.config;
+
+import com.mongodb.MongoException;
+import i.model.Comment;
+import i.model.Conversation;
+import i.model.EmailOutboxEntry;
+import i.model.Message;
+import i.model.Post;
+import i.model.Role;
+import i.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates the indexes declared on the entities (@Indexed, @CompoundIndex) at startup.
+ * Spring Boot no longer creates them automatically, so without this runner the declared indexes
+ * never reach the database. Index creation is idempotent and runs in the background so that
+ * large collections do not delay startup; failures are logged and never stop the application.
+ * Once creation finishes, the unique indexes found in the database are recorded, so that code relying
+ * on a unique index can tell whether it is in place; until then, none is reported as ready.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexInitializer implements CommandLineRunner {
+
+    // Entities whose indexes are managed by the application
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(
+            User.class, Role.class, Post.class, Comment.class, Message.class, Conversation.class, EmailOutboxEntry.class);
+
+    // Server error codes for an existing index that differs from the declared one
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+
+    // A stand-in index keeps the keys of an index being replaced indexed until the replacement is built
+    static final String STAND_IN_SUFFIX = "_replacing";
+    static final String STAND_IN_KEY = "_indexReplacement";
+
+    private final MongoTemplate mongoTemplate;
+
+    // Unique indexes verified to exist, as "<collection>.<index name>"
+    private volatile Set<String> uniqueIndexes = Set.of();
+
+    @Override
+    public void run(String... args) {
+        Thread thread = new Thread(this::ensureIndexes, "index-initializer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates all declared indexes of the managed entities.
+     */
+    void ensureIndexes() {
+        final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        final IndexResolver resolver = IndexResolver.create(mappingContext);
+
+        final Set<String> declaredUnique = new HashSet<>();
+        final Set<String> existingUnique = new HashSet<>();
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            final IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                ensureIndex(entity, indexOps, index);
+                if (Boolean.TRUE.equals(index.getIndexOptions().get("unique"))) {
+                    declaredUnique.add(uniqueIndexKey(entity, index.getIndexOptions().getString("name")));
+                }
+            }
+            try {
+                for (IndexInfo info : indexOps.getIndexInfo()) {
+                    if (info.isUnique()) {
+                        existingUnique.add(uniqueIndexKey(entity, info.getName()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to list the indexes of {}", entity.getSimpleName(), e);
+            }
+        }
+        uniqueIndexes = Set.copyOf(existingUnique);
+
+        declaredUnique.removeAll(existingUnique);
+        if (!declaredUnique.isEmpty()) {
+            log.error("Unique indexes {} are missing, uniqueness relies on checks before writes", declaredUnique);
+        }
+        log.info("Index initialization finished");
+    }
+
+    /**
+     * Tells whether a unique index was verified to exist once index creation finished.
+     *
+     * @param entity the entity the index belongs to
+     * @param name   the name of the index
+     * @return true if the unique index exists, false if it is missing or index creation is still running
+     */
+    public boolean isUniqueIndexReady(Class<?> entity, String name) {
+        return uniqueIndexes.contains(uniqueIndexKey(entity, name));
+    }
+
+    private String uniqueIndexKey(Class<?> entity, String name) {
+        return mongoTemplate.getCollectionName(entity) + "." + name;
+    }
+
+    /**
+     * Creates an index, replacing an existing index with the same name or keys but different options.
+     *
+     * @param entity   the entity the index belongs to
+     * @param indexOps the index operations of the entity collection
+     * @param index    the declared index
+     */
+    void ensureIndex(Class<?> entity, IndexOperations indexOps, IndexDefinition index) {
+        try {
+            final String name = indexOps.ensureIndex(index);
+            log.debug("Index {} ensured on {}", name, entity.getSimpleName());
+        } catch (RuntimeException e) {
+            final int code = errorCode(e);
+            if (code != INDEX_OPTIONS_CONFLICT && code != INDEX_KEY_SPECS_CONFLICT) {
+                log.error("Failed to create index {} on {}", index.getIndexKeys(), entity.getSimpleName(), e);
+                return;
+            }
+            replaceIndex(entity, indexOps, index);
+        }
+    }
+
+    /**
+     * Replaces the existing indexes that conflict with a declared index. A stand-in index whose keys start
+     * with the declared keys is built first, so that queries on those keys stay indexed while the declared
+     * index is rebuilt; MongoDB refuses a second index with the same keys, so the declared index itself
+     * cannot be built under a temporary name. If the declared index cannot be built, for example because a
+     * new unique index meets duplicate data, the stand-in is kept and the failure is logged.
+     *
+     * @param entity   the entity the index belongs to
+     * @param indexOps the index operations of the entity collection
+     * @param index    the declared index
+     */
+    private void replaceIndex(Class<?> entity, IndexOperations indexOps, IndexDefinition index) {
+        final String declaredName = index.getIndexOptions().getString("name");
+        final List<String> conflicting = new ArrayList<>();
+        for (Document existing : mongoTemplate.getCollection(mongoTemplate.getCollectionName(entity))
+                .listIndexes().into(new ArrayList<>())) {
+            final String existingName = existing.getString("name");
+            if (existingName.equals(declaredName) || sameKeys(existing.get("key", Document.class), index.getIndexKeys())) {
+                conflicting.add(existingName);
+            }
+        }
+
+        final IndexDefinition standIn = standInFor(index, declaredName + STAND_IN_SUFFIX);
+        try {
+            indexOps.ensureIndex(standIn);
+        } catch (RuntimeException e) {
+            log.error("Failed to build a stand-in for index {} on {}, keeping the conflicting indexes {}",
+                    index.getIndexKeys(), entity.getSimpleName(), conflicting, e);
+            return;
+        }
+
+        try {
+            for (String existingName : conflicting) {
+                log.warn("Replacing index {} on {} to match its declaration", existingName, entity.getSimpleName());
+                indexOps.dropIndex(existingName);
+            }
+            indexOps.ensureIndex(index);
+        } catch (RuntimeException e) {
+            log.error("Failed to replace index {} on {}, keeping the stand-in index {} until it can be built",
+                    index.getIndexKeys(), entity.getSimpleName(), standIn.getIndexOptions().getString("name"), e);
+            return;
+        }
+        indexOps.dropIndex(standIn.getIndexOptions().getString("name"));
+    }
+
+    /**
+     * Builds a non-unique index on the declared keys followed by a field that documents never have,
+     * which serves the same queries and sorts as the declared index.
+     */
+    private static IndexDefinition standInFor(IndexDefinition index, String name) {
+        final Document keys = new Document(index.getIndexKeys()).append(STAND_IN_KEY, 1);
+        final Document options = new Document("name", name);
+        return new IndexDefinition() {
+            @Override
+            public Document getIndexKeys() {
+                return keys;
+            }
+
+            @Override
+            public Document getIndexOptions() {
+                return options;
+            }
+        };
+    }
+
+    /**
+     * Compares index key documents, ignoring the numeric type of the directions (1 vs 1.0).
+     */
+    private static boolean sameKeys(Document existing, Document declared) {
+        if (existing == null || existing.size() != declared.size()) {
+            return false;
+        }
+        final var existingKeys = existing.entrySet().iterator();
+        for (Map.Entry<String, Object> declaredKey : declared.entrySet()) {
+            final Map.Entry<String, Object> existingKey = existingKeys.next();
+            if (!existingKey.getKey().equals(declaredKey.getKey())) {
+                return false;
+            }
+            final Object existingValue = existingKey.getValue();
+            final Object declaredValue = declaredKey.getValue();
+            final boolean sameValue = existingValue instanceof Number existingNumber
+                    && declaredValue instanceof Number declaredNumber
+                    ? existingNumber.intValue() == declaredNumber.intValue()
+                    : String.valueOf(existingValue).equals(String.valueOf(declaredValue));
+            if (!sameValue) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int errorCode(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException) {
+                return mongoException.getCode();
+            }
+        }
+        return -1;
+    }
+}
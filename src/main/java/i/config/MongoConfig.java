@@ -0,0 +1,27 @@
+package i.config;
+
+import i.interceptors.CollectionScanDetector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * MongoDB client configuration.
+ */
+@Configuration
+public class MongoConfig {
+
+    /**
+     * Registers the listener that logs queries executed as a collection scan.
+     * The template is resolved lazily because it depends on the client being configured here.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "mongodb.collscan-logging.enabled", havingValue = "true")
+    public MongoClientSettingsBuilderCustomizer collectionScanLogging(ObjectProvider<MongoTemplate> mongoTemplate) {
+        final CollectionScanDetector detector = new CollectionScanDetector(mongoTemplate);
+        return settings -> settings.addCommandListener(detector);
+    }
+}
@@ -2,36 +2,42 @@ package i.config;
 
 import i.model.Role;
 import i.repository.RoleRepository;
+import i.security.RoleCatalog;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 /**
- * Initializes default roles in the system.
+ * Initializes default roles in the system and loads the role catalog.
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class RoleInitializer implements CommandLineRunner {
 
     private final RoleRepository roleRepository;
+    private final RoleCatalog roleCatalog;
 
     @Override
     public void run(String... args) {
+        roleCatalog.load();
         initializeRole("ROLE_USER");
         initializeRole("ROLE_ADMIN");
     }
 
     /**
-     * Creates a role in the database if it does not already exist.
+     * Creates a role in the database and the catalog if it does not already exist.
      *
      * @param roleName the name of the role to be created
      */
     private void initializeRole(String roleName) {
-        if (roleRepository.findByName(roleName).isEmpty()) {
+        if (roleCatalog.findByName(roleName).isEmpty()) {
             Role role = new Role();
             role.setName(roleName);
             roleRepository.save(role);
-            System.out.println("Role created: " + roleName);
+            roleCatalog.register(role);
+            log.info("Role created: {}", roleName);
         }
     }
 }
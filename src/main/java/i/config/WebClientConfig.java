@@ -1,14 +1,99 @@
 package i.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    private static final String STORAGE_POOL = "storage";
+
     @Bean
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
+
+    /**
+     * Connection pool shared by all requests to the file storage. Connections are kept alive and reused;
+     * when all of them are busy, requests wait for a free one for a bounded time instead of opening more.
+     * Idle connections are closed before the remote side drops them, and every connection is replaced
+     * after its maximum lifetime so DNS changes are picked up.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider storageConnectionProvider(
+            MeterRegistry meterRegistry,
+            @Value("${storage.http.max-connections:50}") int maxConnections,
+            @Value("${storage.http.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${storage.http.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${storage.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${storage.http.max-life-time:5m}") Duration maxLifeTime) {
+        return ConnectionProvider.builder(STORAGE_POOL)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true, () -> (poolName, id, remoteAddress, metrics) ->
+                        registerPoolMetrics(meterRegistry, poolName, remoteAddress.toString(), metrics))
+                .build();
+    }
+
+    /**
+     * Client for the file storage. It is immutable and shared by concurrent requests; it has no base URL,
+     * so callers pass the API base URL or a direct image link.
+     * A response that does not arrive within the response timeout fails instead of holding the caller.
+     */
+    @Bean
+    public WebClient storageWebClient(
+            WebClient.Builder webClientBuilder,
+            ConnectionProvider storageConnectionProvider,
+            @Value("${storage.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${storage.http.response-timeout:30s}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(storageConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(connectTimeout.toMillis()))
+                .responseTimeout(responseTimeout);
+        // Cloned so the connector does not leak into clients built from the shared builder
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Publishes the state of a pool (one per remote address) as gauges.
+     * The gauges hold the metrics strongly, since the pool keeps no other reference to them.
+     */
+    private static void registerPoolMetrics(MeterRegistry meterRegistry, String poolName, String remoteAddress,
+                                            ConnectionPoolMetrics metrics) {
+        Tags tags = Tags.of("pool", poolName, "remote.address", remoteAddress);
+        Gauge.builder("storage.http.connections.active", metrics, ConnectionPoolMetrics::acquiredSize)
+                .description("Connections currently in use").tags(tags).strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder("storage.http.connections.idle", metrics, ConnectionPoolMetrics::idleSize)
+                .description("Open connections waiting to be reused").tags(tags).strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder("storage.http.connections.total", metrics, ConnectionPoolMetrics::allocatedSize)
+                .description("Open connections").tags(tags).strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder("storage.http.connections.pending", metrics, ConnectionPoolMetrics::pendingAcquireSize)
+                .description("Requests waiting for a connection").tags(tags).strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder("storage.http.connections.max", metrics, ConnectionPoolMetrics::maxAllocatedSize)
+                .description("Maximum number of connections").tags(tags).strongReference(true)
+                .register(meterRegistry);
+    }
 }
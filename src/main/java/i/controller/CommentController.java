@@ -3,7 +3,10 @@ package i.controller;
 import i.dto.CommentCreateRequestDto;
 import i.dto.CommentCreateResponseDto;
 import i.dto.CommentDto;
+import i.dto.CommentNodeDto;
+import i.dto.PageDto;
 import i.service.CommentService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.http.ResponseEntity;
@@ -11,11 +14,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import java.util.List;
-
 import static i.utils.UserUtils.getCurrentAuthUser;
 import static org.springframework.http.HttpStatus.OK;
 
@@ -28,13 +30,34 @@ public class CommentController {
 
     @PostMapping
     public ResponseEntity<CommentCreateResponseDto> createComment(
-            @RequestBody CommentCreateRequestDto requestDto) {
+            @RequestBody @Valid CommentCreateRequestDto requestDto) {
         return ResponseEntity.ok(service.createComment(requestDto, getCurrentAuthUser()));
     }
 
     @GetMapping("/post/{postId}")
-    public ResponseEntity<List<CommentDto>> getCommentsByPostId(@PathVariable("postId") String postId) {
-        return new ResponseEntity<>(service.listCommentsByPostId(postId), OK);
+    public ResponseEntity<PageDto<CommentDto>> getCommentsByPostId(
+            @PathVariable("postId") String postId,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return new ResponseEntity<>(service.listCommentsByPostId(postId, limit, cursor), OK);
+    }
+
+    @GetMapping("/post/{postId}/tree")
+    public ResponseEntity<PageDto<CommentNodeDto>> getCommentTree(
+            @PathVariable("postId") String postId,
+            @RequestParam(value = "maxDepth", required = false) Integer maxDepth,
+            @RequestParam(value = "maxChildren", required = false) Integer maxChildren,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(service.getCommentTree(postId, maxDepth, maxChildren, cursor));
+    }
+
+    @GetMapping("/{id}/replies")
+    public ResponseEntity<PageDto<CommentNodeDto>> getReplies(
+            @PathVariable("id") String id,
+            @RequestParam(value = "maxDepth", required = false) Integer maxDepth,
+            @RequestParam(value = "maxChildren", required = false) Integer maxChildren,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(service.listReplies(id, maxDepth, maxChildren, cursor));
     }
 
     @GetMapping("/{id}")
@@ -43,7 +66,10 @@ public class CommentController {
     }
 
     @GetMapping("/user/{username}")
-    public ResponseEntity<List<CommentDto>> getListOfComments(@PathVariable("username") String userId) {
-        return ResponseEntity.ok(service.getCommentForUserByUserId(userId));
+    public ResponseEntity<PageDto<CommentDto>> getListOfComments(
+            @PathVariable("username") String userId,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(service.getCommentForUserByUserId(userId, limit, cursor));
     }
 }
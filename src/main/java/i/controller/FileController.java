@@ -0,0 +1,39 @@
+package i.controller;
+
+import i.fileStorageClient.LocalFileStorage;
+import i.utils.MediaTypeUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+@RequestMapping("/files")
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class FileController {
+
+    private final LocalFileStorage storage;
+
+    // Serves a file of the local storage. Its content never changes, so clients may cache it for good;
+    // the digest is the ETag, and Range requests are answered with partial content.
+    // Only images are served inline, anything else is served as an attachment
+    @GetMapping("/{digest}")
+    public ResponseEntity<Resource> getFile(@PathVariable("digest") String digest) {
+        return storage.find(digest)
+                .map(path -> ResponseEntity.ok()
+                        .headers(MediaTypeUtils.contentHeaders(path))
+                        .eTag(digest)
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .<Resource>body(new FileSystemResource(path)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,9 +1,14 @@
 package i.controller;
 
+import i.dto.ConversationDto;
 import i.dto.MessageDto;
+import i.dto.PageDto;
+import i.dto.UnreadCountDto;
 import i.service.MessageService;
+import i.stream.UserEventHub;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,8 +17,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static i.utils.UserUtils.getCurrentAuthUser;
 
@@ -24,6 +28,7 @@ import static i.utils.UserUtils.getCurrentAuthUser;
 public class MessageController {
 
     private final MessageService messageService;
+    private final UserEventHub userEventHub;
 
     // Endpoint for sending a message
     @PostMapping
@@ -32,16 +37,53 @@ public class MessageController {
         return ResponseEntity.ok(messageService.sendMessage(recipient, getCurrentAuthUser(), content)); // Return the DTO as the response
     }
 
-    // Endpoint for retrieving sent messages
+    // Endpoint for receiving new messages as server-sent events, instead of polling the received messages
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return userEventHub.subscribe(getCurrentAuthUser());
+    }
+
+    // Endpoint for retrieving one page of sent messages, newest first
     @GetMapping("/sent")
-    public ResponseEntity<List<MessageDto>> getSentMessages() {
-        return ResponseEntity.ok(messageService.getMessagesBySender(getCurrentAuthUser()));
+    public ResponseEntity<PageDto<MessageDto>> getSentMessages(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(messageService.getMessagesBySender(getCurrentAuthUser(), limit, cursor));
     }
 
-    // Endpoint for retrieving received messages
+    // Endpoint for retrieving one page of received messages, newest first
     @GetMapping("/received")
-    public ResponseEntity<List<MessageDto>> getReceivedMessages() {
-        return ResponseEntity.ok(messageService.getMessagesByRecipient(getCurrentAuthUser()));
+    public ResponseEntity<PageDto<MessageDto>> getReceivedMessages(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(messageService.getMessagesByRecipient(getCurrentAuthUser(), limit, cursor));
+    }
+
+    // Endpoint for retrieving one page of conversations, most recently active first
+    @GetMapping("/conversations")
+    public ResponseEntity<PageDto<ConversationDto>> getConversations(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(messageService.getConversations(getCurrentAuthUser(), limit, cursor));
+    }
+
+    // Endpoint for marking a received message and all earlier messages of its sender as read
+    @PostMapping("/read")
+    public ResponseEntity<UnreadCountDto> markRead(@RequestParam("upTo") String upTo) {
+        return ResponseEntity.ok(messageService.markReadUpTo(getCurrentAuthUser(), upTo));
+    }
+
+    // Endpoint for retrieving the number of unread messages
+    @GetMapping("/unread-count")
+    public ResponseEntity<UnreadCountDto> getUnreadCount() {
+        return ResponseEntity.ok(messageService.getUnreadCount(getCurrentAuthUser()));
+    }
+
+    // Endpoint for marking a conversation with another user as read
+    @PostMapping("/conversations/{username}/read")
+    public ResponseEntity<Void> markConversationRead(@PathVariable("username") String username) {
+        messageService.markConversationRead(getCurrentAuthUser(), username);
+        return ResponseEntity.noContent().build();
     }
 
     // Endpoint for retrieving messages by id
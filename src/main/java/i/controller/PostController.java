@@ -1,21 +1,28 @@
 package i.controller;
 
+import i.dto.PageDto;
 import i.dto.PostCreateResponseDto;
 import i.dto.PostDto;
 import i.dto.PostFileUrlDto;
 import i.service.PostService;
+import i.utils.MediaTypeUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static i.utils.UserUtils.getCurrentAuthUser;
 
@@ -37,13 +44,18 @@ public class PostController {
     }
 
     @GetMapping
-    public ResponseEntity<List<PostDto>> getListOfPosts() {
-        return ResponseEntity.ok(service.list(null));
+    public ResponseEntity<PageDto<PostDto>> getListOfPosts(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(service.list(null, limit, cursor));
     }
 
     @GetMapping("/user/{username}")
-    public ResponseEntity<List<PostDto>> getListOfPostsForUser(@PathVariable("username") String username) {
-        return ResponseEntity.ok(service.list(username));
+    public ResponseEntity<PageDto<PostDto>> getListOfPostsForUser(
+            @PathVariable("username") String username,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(service.list(username, limit, cursor));
     }
 
     @GetMapping("/{id}")
@@ -56,4 +68,18 @@ public class PostController {
         return ResponseEntity.ok(service.getImageUrlByPostId(id));
     }
 
+    // Serves the image of a post from local disk; the request thread is released while a missing image
+    // is fetched. Range and If-None-Match requests are answered with partial content and 304.
+    // With a width, the smallest rendition at least that wide is served. Only images are served inline
+    @GetMapping("/{id}/image")
+    public CompletableFuture<ResponseEntity<Resource>> getImage(
+            @PathVariable("id") String id,
+            @RequestParam(value = "width", required = false) Integer width) {
+        return service.getImage(id, width).thenApply(path -> ResponseEntity.ok()
+                .headers(MediaTypeUtils.contentHeaders(path))
+                .eTag(path.getFileName().toString())
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                .body(new FileSystemResource(path)));
+    }
+
 }
@@ -1,7 +1,9 @@
 package i.controller;
 
+import i.dto.PageDto;
 import i.dto.UserCreateRequestDto;
 import i.dto.UserDto;
+import i.dto.UserSummaryDto;
 import i.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -40,14 +42,27 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
-    // Handles the email confirmation request based on the token
+    // Returns one page of the user directory, newest users first
     @GetMapping
-    public ResponseEntity<List<UserDto>> list() {
-        return new ResponseEntity<>(userService.list(), OK);
+    public ResponseEntity<PageDto<UserSummaryDto>> list(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return new ResponseEntity<>(userService.list(limit, cursor), OK);
+    }
+
+    // Suggests existing usernames for a misspelled one ("did you mean")
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<UserSummaryDto>> suggestions(
+            @RequestParam String query,
+            @RequestParam(value = "maxDistance", required = false) Integer maxDistance,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return new ResponseEntity<>(userService.suggestUsernames(query, maxDistance, limit), OK);
     }
 
     @GetMapping("/{substring}")
-    public ResponseEntity<List<UserDto>> listContainsString (@PathVariable String substring) {
-        return new ResponseEntity<>(userService.getUsernamesListBySubstring(substring), OK);
+    public ResponseEntity<List<UserSummaryDto>> listContainsString (
+            @PathVariable String substring,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return new ResponseEntity<>(userService.getUsernamesListBySubstring(substring, limit), OK);
     }
 }
@@ -1,6 +1,8 @@
 package i.dto;
 
+import i.model.ItemType;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 /**
@@ -17,6 +19,13 @@ public class CommentCreateRequestDto {
     @NotBlank(message = "Post/message ID cannot be empty")
     private String itemId;
 
+    /**
+     * The type of the item (POST or MESSAGE) to which the comment is related.
+     * This field is required and selects the only collection the item is looked up in.
+     */
+    @NotNull(message = "Item type cannot be null")
+    private ItemType itemType;
+
     /**
      * The content of the comment.
      * This field is required and should not be empty.
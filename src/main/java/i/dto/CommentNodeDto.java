@@ -0,0 +1,28 @@
+package i.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A comment together with its (possibly truncated) replies, as returned by the comment tree endpoints.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentNodeDto {
+    private String id;
+    private String itemId;
+    private String content;
+    private String username;
+    private String parentCommentId;
+    private String createdAt;
+
+    private List<CommentNodeDto> replies = new ArrayList<>();  // Direct replies included in this response
+    private int replyCount;                                    // Total number of direct replies
+    private boolean hasMoreReplies;                            // True if some direct replies were cut off
+    private String repliesCursor;                              // Cursor for /comments/{id}/replies, null to start from the first reply
+}
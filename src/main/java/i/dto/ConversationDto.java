@@ -0,0 +1,19 @@
+package i.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversationDto {
+    private String counterpart;             // Username of the other participant
+    private String lastMessageId;           // ID of the last message
+    private String lastSender;              // Username of the sender of the last message
+    private String lastMessagePreview;      // Beginning of the content of the last message
+    private LocalDateTime lastMessageAt;    // Date and time of the last message
+    private long unreadCount;               // Messages of the conversation not read yet by the current user
+}
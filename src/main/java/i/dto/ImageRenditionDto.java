@@ -0,0 +1,14 @@
+package i.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageRenditionDto {
+    private int width;      // Width in pixels
+    private int height;     // Height in pixels
+    private String url;     // URL of the rendition
+}
@@ -17,5 +17,6 @@ public class MessageDto {
     private String content;     // Message content
     private LocalDateTime createdAt; // Timestamp of message creation
     private Set<String> commentIds = new HashSet<>(); // Message comment Ids
+    private LocalDateTime readAt;    // Timestamp the recipient read the message, null while unread
 
 }
@@ -0,0 +1,20 @@
+package i.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * The next cursor is opaque for clients and is null when there are no more items.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageDto<T> {
+    private List<T> items = new ArrayList<>();  // Items of the current page
+    private String nextCursor;                  // Cursor of the next page, null on the last page
+}
@@ -1,5 +1,6 @@
 package i.dto;
 
+import i.model.ImageStatus;
 import lombok.Data;
 
 @Data
@@ -10,4 +11,5 @@ public class PostCreateResponseDto {
     private String username;    // Author username
     private String createdAt;   // Post creation date
     private String imageUrl;    // URL of the attached image
+    private ImageStatus imageStatus;  // Upload state of the image, null if the post has no image
 }
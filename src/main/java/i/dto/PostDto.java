@@ -1,9 +1,12 @@
 package i.dto;
 
+import i.model.ImageStatus;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Data
@@ -15,5 +18,8 @@ public class PostDto {
     private LocalDateTime createdAt;  // Date and time the post was created
     private Set<String> tags = new HashSet<>();           // Post tags
     private Set<String> commentIds = new HashSet<>(); // Post comment Ids
+    private long commentCount;  // Number of comments of the post
     private String imageUrl;    // URL of the attached image
+    private ImageStatus imageStatus;  // Upload state of the image, null if the post has no image
+    private List<ImageRenditionDto> renditions = new ArrayList<>();  // Downscaled copies of the image, smallest first
 }
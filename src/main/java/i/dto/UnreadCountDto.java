@@ -0,0 +1,12 @@
+package i.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UnreadCountDto {
+    private long unreadCount;   // Messages received by the current user and not read yet
+}
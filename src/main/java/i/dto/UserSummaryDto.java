@@ -0,0 +1,19 @@
+package i.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Public summary of a user, as shown in user search results and directories.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSummaryDto {
+    private String id;
+    private String username;
+    private LocalDateTime createdAt;
+}
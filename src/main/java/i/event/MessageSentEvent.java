@@ -0,0 +1,11 @@
+package i.event;
+
+import i.dto.MessageDto;
+
+/**
+ * Published when a message has been sent, so that it can be pushed to the connected users.
+ *
+ * @param message the sent message
+ */
+public record MessageSentEvent(MessageDto message) {
+}
@@ -0,0 +1,14 @@
+package i.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a user has read the messages of another user, so that the sender gets a read receipt.
+ *
+ * @param reader    the user who read the messages
+ * @param sender    the user who sent the messages
+ * @param upToId    the ID of the last message read, or null if the whole conversation was read
+ * @param readAt    the date and time the messages were read
+ */
+public record MessagesReadEvent(String reader, String sender, String upToId, LocalDateTime readAt) {
+}
@@ -0,0 +1,15 @@
+package i.event;
+
+import i.model.ImageStatus;
+
+/**
+ * Published when the background upload of the image of a post has completed or failed,
+ * so that the author is notified without polling the post.
+ *
+ * @param postId   the ID of the post
+ * @param username the author of the post
+ * @param status   the resulting image status
+ * @param imageUrl the URL of the uploaded image, or null if the upload failed
+ */
+public record PostImageProcessedEvent(String postId, String username, ImageStatus status, String imageUrl) {
+}
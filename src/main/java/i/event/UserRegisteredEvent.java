@@ -0,0 +1,11 @@
+package i.event;
+
+import i.dto.UserSummaryDto;
+
+/**
+ * Published when a new user has been saved, so that in-memory user indexes can pick it up.
+ *
+ * @param user the summary of the registered user
+ */
+public record UserRegisteredEvent(UserSummaryDto user) {
+}
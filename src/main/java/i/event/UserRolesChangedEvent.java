@@ -0,0 +1,9 @@
+package i.event;
+
+/**
+ * Published when the roles of a user change, so that cached authorities of the user are dropped.
+ *
+ * @param username the username of the user whose roles changed
+ */
+public record UserRolesChangedEvent(String username) {
+}
@@ -0,0 +1,8 @@
+package i.exception;
+
+// An invalid image fails the same way on every attempt, so it is an IllegalArgumentException
+public class UnsupportedImageException extends IllegalArgumentException {
+    public UnsupportedImageException(String message) {
+        super(message);
+    }
+}
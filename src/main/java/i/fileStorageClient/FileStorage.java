@@ -1,9 +1,19 @@
 package i.fileStorageClient;
 
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
+import java.util.Optional;
+
 public interface FileStorage {
     Mono<String> uploadImage(MultipartFile image);
+    Mono<String> uploadImage(Resource image);
     String getImageUrl(String imageId);
+
+    // The file behind a URL of this storage, if it is stored on this server and can be served directly
+    default Optional<Path> localPath(String url) {
+        return Optional.empty();
+    }
 }
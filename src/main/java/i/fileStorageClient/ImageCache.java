@@ -0,0 +1,169 @@
+package i.fileStorageClient;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Bounded on-disk cache of images fetched from the file storage, so that serving an image does not
+ * fetch it upstream every time nor hold it in memory. Images are streamed to disk as they arrive and
+ * keyed by the SHA-256 of their URL; once the total size exceeds the limit, images are evicted by
+ * Caffeine's size-based policy, which favours recently and frequently requested images.
+ * Concurrent requests for an image that is not cached yet share a single fetch.
+ * Hit and miss counts are published as the "post-images" cache metrics.
+ */
+@Slf4j
+@Component
+public class ImageCache {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int KEY_LENGTH = 64;
+
+    private final WebClient storageWebClient;
+    private final Path dir;
+    private final Path tmp;
+    private final Duration deleteDelay;
+    private final AsyncCache<String, Path> cache;
+
+    public ImageCache(
+            WebClient storageWebClient,
+            MeterRegistry meterRegistry,
+            @Value("${storage.image-cache.dir:data/image-cache}") Path dir,
+            @Value("${storage.image-cache.max-size:1GB}") DataSize maxSize,
+            @Value("${storage.image-cache.delete-delay:1m}") Duration deleteDelay) {
+        this.storageWebClient = storageWebClient;
+        this.dir = dir.toAbsolutePath().normalize();
+        this.tmp = this.dir.resolve("tmp");
+        this.deleteDelay = deleteDelay;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Path path) -> weightOf(path))
+                .removalListener((String key, Path path, RemovalCause cause) -> {
+                    if (path != null) {
+                        scheduleDelete(path);
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "post-images");
+        load();
+    }
+
+    /**
+     * Returns the cached file of an image, fetching it into the cache on a miss.
+     * The future of a fetch is shared by every request for the same image until it completes.
+     *
+     * @param url the URL of the image in the file storage
+     * @return a future completed with the path of the cached file; the file name is unique to each fetch
+     */
+    public CompletableFuture<Path> get(String url) {
+        final String key = keyOf(url);
+        final CompletableFuture<Path> image = cache.get(key, (k, executor) -> fetch(url, k).toFuture());
+        if (image.isCompletedExceptionally()) {
+            // A failed fetch is dropped by the cache once it completes; do not wait for that to fetch again
+            cache.asMap().remove(key, image);
+            return cache.get(key, (k, executor) -> fetch(url, k).toFuture());
+        }
+        return image;
+    }
+
+    /**
+     * Streams an image to a temporary file, then moves it into the cache directory.
+     * Every fetch gets a new file name, so that the delayed deletion of an evicted file
+     * never removes the file of a later fetch of the same image.
+     */
+    private Mono<Path> fetch(String url, String key) {
+        log.debug("Fetching image {} into the cache", url);
+        return Mono.fromCallable(() -> Files.createTempFile(tmp, key + "-", ".part"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(temp -> DataBufferUtils.write(
+                                storageWebClient.get().uri(URI.create(url)).retrieve().bodyToFlux(DataBuffer.class), temp)
+                        .then(Mono.fromCallable(() -> Files.move(temp, cachedPathOf(temp), StandardCopyOption.ATOMIC_MOVE)))
+                        .doFinally(signal -> deleteQuietly(temp)))
+                .doOnError(e -> log.error("Failed to fetch image {}", url, e));
+    }
+
+    /**
+     * Registers the images cached by a previous run and drops incomplete downloads.
+     */
+    private void load() {
+        try {
+            Files.createDirectories(tmp);
+            try (Stream<Path> parts = Files.list(tmp)) {
+                parts.forEach(ImageCache::deleteQuietly);
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(Files::isRegularFile)
+                        .filter(path -> path.getFileName().toString().length() > KEY_LENGTH)
+                        .forEach(path -> cache.put(path.getFileName().toString().substring(0, KEY_LENGTH),
+                                CompletableFuture.completedFuture(path)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the image cache in " + dir, e);
+        }
+        log.info("Image cache in {} holds {} images", dir, cache.synchronous().estimatedSize());
+    }
+
+    /**
+     * Deletes an evicted file after a delay, so that responses still streaming it are not cut short.
+     */
+    private void scheduleDelete(Path path) {
+        CompletableFuture.runAsync(() -> deleteQuietly(path),
+                CompletableFuture.delayedExecutor(deleteDelay.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    private Path cachedPathOf(Path temp) {
+        final String name = temp.getFileName().toString();
+        return dir.resolve(name.substring(0, name.length() - ".part".length()));
+    }
+
+    private static int weightOf(Path path) {
+        try {
+            return (int) Math.min(Files.size(path), Integer.MAX_VALUE);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String keyOf(String url) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import i.repository.PostRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -19,9 +21,10 @@ import reactor.core.publisher.Mono;
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@ConditionalOnProperty(name = "storage.type", havingValue = "imgur", matchIfMissing = true)
 public class ImgurService implements FileStorage {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient storageWebClient;  // Shared pooled client, see WebClientConfig
     private final PostRepository postRepository;
 
     @Value("${imgur.api.base-url}")
@@ -30,8 +33,6 @@ public class ImgurService implements FileStorage {
     @Value("${imgur.client-id}")
     private String clientId;  // Client ID for Imgur API authorization
 
-    private WebClient webClient;
-
     /**
      * Uploads an image to Imgur and retrieves the image URL.
      *
@@ -48,17 +49,25 @@ public class ImgurService implements FileStorage {
             return Mono.error(new IllegalArgumentException("Image must not be empty"));
         }
 
+        return uploadImage(image.getResource());
+    }
+
+    /**
+     * Uploads image content to Imgur and retrieves the image URL.
+     *
+     * @param image the image content, with its file name
+     * @return a Mono emitting the URL of the uploaded image
+     */
+    @Override
+    public Mono<String> uploadImage(Resource image) {
         // Prepare form data for the request
         MultiValueMap<String, Object> formData = new LinkedMultiValueMap<>();
-        formData.add("image", image.getResource());
-
-        // Initialize WebClient with the Imgur base URL
-        webClient = webClientBuilder.baseUrl(baseUrl).build();
+        formData.add("image", image);
 
         // Send POST request to Imgur API for image upload
         log.info("Sending image upload request to Imgur API.");
-        return webClient.post()
-                .uri("/3/image")  // Endpoint for image upload
+        return storageWebClient.post()
+                .uri(baseUrl, uri -> uri.path("/3/image").build())  // Endpoint for image upload
                 .header("Authorization", "Client-ID " + clientId)  // Add Authorization header
                 .contentType(MediaType.MULTIPART_FORM_DATA)  // Set content type to multipart/form-data
                 .bodyValue(formData)  // Add form data to the request body
@@ -100,11 +109,9 @@ public class ImgurService implements FileStorage {
     public byte[] getImageByDirectUrl(String url) {
         log.info("Retrieving image from URL: {}", url);
 
-        // Initialize WebClient without a base URL to allow direct URL usage
-        webClient = webClientBuilder.build();
         try {
             // Execute GET request to fetch the image
-            return webClient.get()
+            return storageWebClient.get()
                     .uri(url)  // Use the full URL as the request URI
                     .retrieve()  // Retrieve the response
                     .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
@@ -0,0 +1,204 @@
+package i.fileStorageClient;
+
+import i.exception.UnsupportedImageException;
+import i.repository.PostRepository;
+import i.utils.MediaTypeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * File storage on the local file system, for deployments without access to Imgur.
+ * Files are addressed by the SHA-256 digest of their content and stored under
+ * {@code <root>/<2 hex>/<2 hex>/<digest>}, so identical uploads are stored once.
+ * Uploads are streamed to a temporary file while the digest is computed, then renamed
+ * into place atomically; a stored file is therefore always complete and never changes.
+ * Enabled with {@code storage.type=local}; files are served by the files endpoint.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalFileStorage implements FileStorage {
+
+    private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final PostRepository postRepository;
+    private final Path root;
+    private final Path tmp;
+    private final String publicUrl;
+
+    private final Counter storedCounter;
+    private final Counter deduplicatedCounter;
+
+    public LocalFileStorage(
+            PostRepository postRepository,
+            MeterRegistry meterRegistry,
+            @Value("${storage.local.root:data/files}") Path root,
+            @Value("${storage.local.public-url:http://localhost:8080/api/files}") String publicUrl) {
+        this.postRepository = postRepository;
+        this.root = root.toAbsolutePath().normalize();
+        this.tmp = this.root.resolve("tmp");
+        this.publicUrl = publicUrl;
+        try {
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the storage directory " + tmp, e);
+        }
+        this.storedCounter = writes(meterRegistry, "stored");
+        this.deduplicatedCounter = writes(meterRegistry, "deduplicated");
+        log.info("Storing files in {}", this.root);
+    }
+
+    /**
+     * Stores an uploaded image and returns its public URL.
+     *
+     * @param image the image to upload
+     * @return a Mono emitting the URL of the stored image
+     */
+    @Override
+    public Mono<String> uploadImage(MultipartFile image) {
+        if (image.isEmpty()) {
+            log.error("The image is empty, cannot upload.");
+            return Mono.error(new IllegalArgumentException("Image must not be empty"));
+        }
+        return store(image);
+    }
+
+    /**
+     * Stores image content and returns its public URL.
+     *
+     * @param image the image content
+     * @return a Mono emitting the URL of the stored image
+     */
+    @Override
+    public Mono<String> uploadImage(Resource image) {
+        return store(image);
+    }
+
+    @Override
+    public String getImageUrl(String postId) {
+        return postRepository.findById(postId)
+                .map(post -> {
+                    if (post.getImageUrl() == null || post.getImageUrl().isEmpty()) {
+                        throw new IllegalArgumentException("Post with ID " + postId + " does not have an image.");
+                    }
+                    return post.getImageUrl();
+                })
+                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
+    }
+
+    /**
+     * Looks up a stored file.
+     *
+     * @param digest the SHA-256 digest of the file, in lowercase hex
+     * @return the path of the file, or empty if the digest is malformed or no such file is stored
+     */
+    public Optional<Path> find(String digest) {
+        if (digest == null || !DIGEST.matcher(digest).matches()) {
+            return Optional.empty();
+        }
+        final Path path = pathOf(digest);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public Optional<Path> localPath(String url) {
+        final String prefix = publicUrl + "/";
+        return url.startsWith(prefix) ? find(url.substring(prefix.length())) : Optional.empty();
+    }
+
+    private Mono<String> store(InputStreamSource source) {
+        // File I/O blocks, so it runs off the caller's event loop
+        return Mono.fromCallable(() -> publicUrl + "/" + write(source))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Streams content to a temporary file while computing its digest, then moves it to its final path
+     * unless a file with the same content is stored already.
+     *
+     * @param source the content to store
+     * @return the digest of the content
+     * @throws UnsupportedImageException if the content is not a PNG, JPEG, GIF or WebP image
+     */
+    String write(InputStreamSource source) throws IOException {
+        final Path temp = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            final MessageDigest sha256 = sha256();
+            try (InputStream in = new BufferedInputStream(source.getInputStream())) {
+                // Only images are stored: anything else could be served as a page of the API origin
+                in.mark(MediaTypeUtils.SIGNATURE_LENGTH);
+                if (MediaTypeUtils.detectImage(in).isEmpty()) {
+                    throw new UnsupportedImageException("Only PNG, JPEG, GIF and WebP images are accepted");
+                }
+                in.reset();
+                Files.copy(new DigestInputStream(in, sha256), temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final String digest = HEX.formatHex(sha256.digest());
+            final Path target = pathOf(digest);
+
+            if (Files.exists(target)) {
+                log.debug("File {} is stored already", digest);
+                deduplicatedCounter.increment();
+                return digest;
+            }
+
+            // Flush the content before the rename publishes the file, so a crash cannot leave a partial file
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.createDirectories(target.getParent());
+            // A concurrent upload of the same content may win the rename; both files are identical
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            storedCounter.increment();
+            log.info("Stored file {}", digest);
+            return digest;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path pathOf(String digest) {
+        return root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Counter writes(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.local.writes")
+                .description("Files written to the local storage by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
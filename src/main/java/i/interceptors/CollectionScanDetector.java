@@ -0,0 +1,145 @@
+package i.interceptors;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Explains every distinct find query shape once and logs the ones executed as a collection scan (COLLSCAN).
+ * Explains run on a single background thread; when it falls behind, new shapes are skipped rather than queued.
+ */
+@Slf4j
+public class CollectionScanDetector implements CommandListener {
+
+    private static final int MAX_PENDING_EXPLAINS = 100;
+    private static final int MAX_TRACKED_SHAPES = 10_000;
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final Set<String> explainedShapes = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(MAX_PENDING_EXPLAINS), runnable -> {
+                Thread thread = new Thread(runnable, "collscan-detector");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public CollectionScanDetector(ObjectProvider<MongoTemplate> mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!"find".equals(event.getCommandName())) {
+            return;
+        }
+
+        final BsonDocument command = event.getCommand();
+        final String collection = command.getString("find").getValue();
+        final String shape = collection + " " + shapeOf(command.get("filter")) + " sort " + shapeOf(command.get("sort"));
+        if (explainedShapes.size() >= MAX_TRACKED_SHAPES || !explainedShapes.add(shape)) {
+            return;
+        }
+
+        // Copy only the parts of the query that affect the plan
+        final Document find = new Document("find", collection);
+        for (String key : new String[]{"filter", "sort", "projection", "hint"}) {
+            if (command.containsKey(key)) {
+                find.append(key, command.get(key));
+            }
+        }
+        final String databaseName = event.getDatabaseName();
+        executor.execute(() -> explain(databaseName, shape, find));
+    }
+
+    private void explain(String databaseName, String shape, Document find) {
+        try {
+            final Document plan = mongoTemplate.getObject().getMongoDatabaseFactory().getMongoDatabase(databaseName)
+                    .runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+            if (containsCollectionScan(plan.get("queryPlanner"))) {
+                log.warn("Query runs as a collection scan (COLLSCAN): {}", shape);
+            }
+        } catch (RuntimeException e) {
+            // Forget the shape so that it is explained again next time
+            explainedShapes.remove(shape);
+            log.debug("Failed to explain query {}", shape, e);
+        }
+    }
+
+    /**
+     * Looks for a COLLSCAN stage anywhere in the winning plan of an explain result.
+     *
+     * @param queryPlanner the queryPlanner section of an explain result
+     * @return true if the winning plan scans the whole collection
+     */
+    static boolean containsCollectionScan(Object queryPlanner) {
+        if (!(queryPlanner instanceof Document planner)) {
+            return false;
+        }
+        return hasStage(planner.get("winningPlan"), "COLLSCAN");
+    }
+
+    private static boolean hasStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            for (Object value : document.values()) {
+                if (hasStage(value, stage)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof Iterable<?> values) {
+            for (Object value : values) {
+                if (hasStage(value, stage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes the structure of a query, with every value replaced by '?', so that queries
+     * differing only in their parameters share the same shape.
+     *
+     * @param value a filter or sort document, or one of its values
+     * @return the shape of the value
+     */
+    static String shapeOf(BsonValue value) {
+        if (value == null) {
+            return "{}";
+        }
+        if (value.isDocument()) {
+            final StringBuilder shape = new StringBuilder("{");
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                if (shape.length() > 1) {
+                    shape.append(", ");
+                }
+                shape.append(entry.getKey()).append(": ").append(shapeOf(entry.getValue()));
+            }
+            return shape.append("}").toString();
+        }
+        if (value.isArray()) {
+            final BsonArray array = value.asArray();
+            // Arrays of documents ($or, $and) keep their structure, arrays of values ($in) do not
+            return array.isEmpty() || !array.get(0).isDocument()
+                    ? "[?]"
+                    : array.stream().map(CollectionScanDetector::shapeOf).distinct().toList().toString();
+        }
+        return "?";
+    }
+}
@@ -2,7 +2,9 @@ package i.interceptors;
 
 import i.exception.CommentNotFoundException;
 import i.exception.EmailNotVerifiedException;
+import i.exception.InvalidCursorException;
 import i.exception.MessageAccessDeniedException;
+import i.exception.UnsupportedImageException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -66,6 +68,24 @@ public class ControllerExceptionHandler {
         return new ResponseEntity<>(Collections.singletonMap("message", ex.getMessage()), HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Handles InvalidCursorException and returns a message indicating the pagination cursor is malformed.
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCursorException(InvalidCursorException ex) {
+        log.error("Invalid cursor: {}", ex.getMessage());
+        return new ResponseEntity<>(Collections.singletonMap("message", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles UnsupportedImageException and returns a message indicating the upload is not an accepted image.
+     */
+    @ExceptionHandler(UnsupportedImageException.class)
+    public ResponseEntity<Map<String, String>> handleUnsupportedImageException(UnsupportedImageException ex) {
+        log.error("Unsupported image: {}", ex.getMessage());
+        return new ResponseEntity<>(Collections.singletonMap("message", ex.getMessage()), HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
     /**
      * Handles malformed or missing request body exceptions (HttpMessageNotReadableException).
      */
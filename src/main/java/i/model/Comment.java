@@ -6,13 +6,21 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.index.Indexed;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Document(collection = "comments")
+@CompoundIndexes({
+        // All comments of an item in thread order, read at once to build the comment tree
+        // and page by page for the flat listing
+        @CompoundIndex(name = "itemId_createdAt_id", def = "{'itemId': 1, 'createdAt': 1, '_id': 1}"),
+        // Keyset pagination of the comments of one user: newest comments first
+        @CompoundIndex(name = "username_createdAt_id", def = "{'username': 1, 'createdAt': -1, '_id': -1}")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -21,18 +29,16 @@ public class Comment {
     private String id = UUID.randomUUID().toString();   // Unique comment identifier
 
     @NotNull(message = "Post ID cannot be null")
-    @Indexed
     private String itemId;                              // ID of the post or message to which the comment refers
 
     @NotEmpty(message = "Content cannot be empty")
     private String content;                             // Content of the comment
 
     @NotEmpty(message = "Username cannot be empty")
-    @Indexed
     private String username;                            // Username of the comment author (user reference)
 
     private String parentCommentId;                     // Parent comment ID if this is a reply to another comment
 
     private LocalDateTime createdAt = LocalDateTime.now(); // Date and time when the comment was created
-    private String type; // type og comment (post, message e.g.)
+    private ItemType type;                              // Type of the item the comment refers to (post, message)
 }
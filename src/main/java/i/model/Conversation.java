@@ -0,0 +1,86 @@
+package i.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of the messages exchanged by two users, updated with every message they send each other.
+ * There is one conversation per pair of users, whatever the direction of the messages.
+ */
+@Document(collection = "conversations")
+@CompoundIndexes({
+        // Conversations of a user, most recently active first
+        @CompoundIndex(name = "participants_lastMessageAt_id", def = "{'participants': 1, 'lastMessageAt': -1, '_id': -1}")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class Conversation {
+    @Id
+    private String id;                                      // Derived from the participants, see idOf
+
+    private List<String> participants = new ArrayList<>();  // Usernames of both users, in alphabetical order
+    private long firstUnreadCount;                          // Messages not read yet by the first participant
+    private long secondUnreadCount;                         // Messages not read yet by the second participant
+
+    private String lastMessageId;                           // ID of the last message
+    private String lastSender;                              // Username of the sender of the last message
+    private String lastMessagePreview;                      // Beginning of the content of the last message
+    private LocalDateTime lastMessageAt;                    // Date and time of the last message
+
+    /**
+     * Returns the ID of the conversation of two users; the order of the users does not matter.
+     * The length of the first username keeps the ID unambiguous whatever the usernames contain.
+     *
+     * @param user      one of the users
+     * @param otherUser the other user
+     * @return the conversation ID
+     */
+    public static String idOf(String user, String otherUser) {
+        final List<String> participants = participantsOf(user, otherUser);
+        return participants.get(0).length() + ":" + participants.get(0) + ":" + participants.get(1);
+    }
+
+    /**
+     * @param user      one of the users
+     * @param otherUser the other user
+     * @return the usernames of both users, in alphabetical order
+     */
+    public static List<String> participantsOf(String user, String otherUser) {
+        return user.compareTo(otherUser) <= 0 ? List.of(user, otherUser) : List.of(otherUser, user);
+    }
+
+    /**
+     * @param participants the participants, as returned by {@link #participantsOf(String, String)}
+     * @param username     one of the participants
+     * @return the name of the field holding the unread counter of that participant
+     */
+    public static String unreadCountField(List<String> participants, String username) {
+        return participants.get(0).equals(username) ? "firstUnreadCount" : "secondUnreadCount";
+    }
+
+    /**
+     * @param username one of the participants
+     * @return the other participant
+     */
+    public String counterpartOf(String username) {
+        return participants.get(0).equals(username) ? participants.get(1) : participants.get(0);
+    }
+
+    /**
+     * @param username one of the participants
+     * @return the number of messages not read yet by that participant
+     */
+    public long unreadCountOf(String username) {
+        return participants.get(0).equals(username) ? firstUnreadCount : secondUnreadCount;
+    }
+}
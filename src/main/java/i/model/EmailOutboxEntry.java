@@ -0,0 +1,43 @@
+package i.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An email waiting to be delivered, or delivered recently, by the outbox dispatcher.
+ */
+@Document(collection = "email_outbox")
+@CompoundIndexes({
+        // Claiming of the entries due for delivery, oldest first
+        @CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class EmailOutboxEntry {
+    @Id
+    private String id = UUID.randomUUID().toString();          // Unique entry identifier
+
+    private String recipient;                                  // Recipient email address
+    private String subject;                                    // Subject of the email
+    private String text;                                       // Plain text body of the email
+
+    private EmailStatus status = EmailStatus.PENDING;          // Delivery state
+    private int attempts;                                      // Number of delivery attempts made so far
+    private LocalDateTime nextAttemptAt = LocalDateTime.now(); // Earliest time of the next attempt, or end of the claim while sending
+    private String lastError;                                  // Error of the last failed attempt
+
+    private LocalDateTime createdAt = LocalDateTime.now();     // Date and time the email was queued
+
+    @Indexed(name = "sentAt_ttl", expireAfter = "7d")
+    private LocalDateTime sentAt;                              // Date and time of delivery, sent entries are removed a week later
+}
@@ -0,0 +1,11 @@
+package i.model;
+
+/**
+ * Delivery states of an email outbox entry.
+ */
+public enum EmailStatus {
+    PENDING,    // Waiting for its next delivery attempt
+    SENDING,    // Claimed by a dispatcher, delivery in progress
+    SENT,       // Delivered to the mail server
+    FAILED      // Given up after the maximum number of attempts
+}
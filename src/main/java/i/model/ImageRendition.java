@@ -0,0 +1,17 @@
+package i.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A downscaled copy of the image of a post, stored in the file storage next to the original.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ImageRendition {
+    private int width;      // Width in pixels
+    private int height;     // Height in pixels
+    private String url;     // URL of the rendition in the file storage
+}
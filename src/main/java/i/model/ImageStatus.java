@@ -0,0 +1,10 @@
+package i.model;
+
+/**
+ * Upload states of the image attached to a post.
+ */
+public enum ImageStatus {
+    PENDING,    // Queued or being uploaded to the file storage
+    READY,      // Uploaded, the image URL is set
+    FAILED      // Not uploaded, the post has no image
+}
@@ -19,6 +19,8 @@ public abstract class Item {
 
     private Set<String> commentIds = new HashSet<>();      // Список ID комментариев
 
+    private long commentCount;                             // Number of comments, maintained atomically
+
     @NotEmpty(message = "Content cannot be empty")
     private String content;                               // Общий текстовый контент
 }
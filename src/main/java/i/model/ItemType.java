@@ -0,0 +1,16 @@
+package i.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Types of items that can be commented, each stored in its own collection.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ItemType {
+    POST(Post.class),
+    MESSAGE(Message.class);
+
+    private final Class<? extends Item> itemClass;  // Entity class of the item collection
+}
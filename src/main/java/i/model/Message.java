@@ -5,20 +5,31 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
+
 @EqualsAndHashCode(callSuper = true)
 @Document(collection = "messages")
+@CompoundIndexes({
+        // Keyset pagination of the messages sent by a user: newest messages first
+        @CompoundIndex(name = "sender_createdAt_id", def = "{'sender': 1, 'createdAt': -1, '_id': -1}"),
+        // Keyset pagination of the messages received by a user: newest messages first
+        @CompoundIndex(name = "recipient_createdAt_id", def = "{'recipient': 1, 'createdAt': -1, '_id': -1}"),
+        // Marking the unread messages of a conversation as read, up to a message
+        @CompoundIndex(name = "recipient_sender_readAt_createdAt", def = "{'recipient': 1, 'sender': 1, 'readAt': 1, 'createdAt': 1}")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class Message extends Item {
     @NotEmpty(message = "Sender username cannot be empty")
-    @Indexed
     private String sender;              // Имя пользователя отправителя
 
     @NotEmpty(message = "Recipient username cannot be empty")
-    @Indexed
     private String recipient;           // Имя пользователя получателя
+
+    private LocalDateTime readAt;       // Date and time the recipient read the message, null while unread
 }
@@ -4,14 +4,24 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @EqualsAndHashCode(callSuper = true)
 @Document(collection = "posts")
+@CompoundIndexes({
+        // Keyset pagination of the feed: newest posts first
+        @CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}"),
+        // Keyset pagination of the posts of one author
+        @CompoundIndex(name = "username_createdAt_id", def = "{'username': 1, 'createdAt': -1, '_id': -1}")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -24,4 +34,8 @@ public class Post extends Item {
     private Set<String> tags = new HashSet<>();  // Теги поста
 
     private String imageUrl;            // URL изображения
+
+    private ImageStatus imageStatus;    // Upload state of the image, null if the post has no image
+
+    private List<ImageRendition> renditions = new ArrayList<>();  // Downscaled copies of the image, smallest first
 }
@@ -0,0 +1,21 @@
+package i.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Number of received messages a user has not read yet, over all conversations.
+ */
+@Document(collection = "unread_counters")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class UnreadCounter {
+    @Id
+    private String username;    // Username of the recipient
+
+    private long count;         // Messages received and not read yet
+}
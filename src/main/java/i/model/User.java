@@ -7,6 +7,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -15,14 +18,23 @@ import java.util.Set;
 import java.util.UUID;
 
 @Document(collection = "users")
+@CompoundIndexes({
+        // Users in creation order, read by the username index catch-up
+        @CompoundIndex(name = "createdAt_id", def = "{'createdAt': 1, '_id': 1}")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class User {
+    // Names of the unique indexes, reported in duplicate key errors
+    public static final String USERNAME_INDEX = "username_unique";
+    public static final String EMAIL_INDEX = "email_unique";
+
     @Id
     private String id = UUID.randomUUID().toString();  // Unique identifier for the user
 
     @NotEmpty(message = "Username cannot be empty")
+    @Indexed(name = USERNAME_INDEX, unique = true)
     private String username;
 
     @NotEmpty(message = "Password cannot be empty")
@@ -30,6 +42,7 @@ public class User {
 
     @NotNull(message = "Email cannot be null")
     @Email(message = "Invalid email format")
+    @Indexed(name = EMAIL_INDEX, unique = true)
     private String email;
 
     @NotEmpty(message = "Roles cannot be empty")
@@ -37,6 +50,7 @@ public class User {
 
     private LocalDateTime createdAt = LocalDateTime.now();    // Date and time the user was created
 
+    @Indexed(sparse = true)
     private String confirmationToken;  // Token for email confirmation
 
     private boolean emailVerified = false;  // Flag indicating if the email is confirmed
@@ -1,13 +1,30 @@
 package i.repository;
 
 import i.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CommentRepository extends MongoRepository<Comment, String> {
-    // Method to retrieve comments by Post ID
-    List<Comment> findByItemId(String postId);
-    // Method to retrieve comments by username
-    List<Comment> findByUsername(String username);
+    // Method to retrieve all comments of an item in thread order (oldest first)
+    List<Comment> findByItemIdOrderByCreatedAtAscIdAsc(String itemId);
+
+    // First page of the comments of an item, oldest comments first
+    List<Comment> findByItemIdOrderByCreatedAtAscIdAsc(String itemId, Pageable pageable);
+
+    // Next page of the comments of an item, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ 'itemId': ?0, $or: [ { 'createdAt': { $gt: ?1 } }, { 'createdAt': ?1, '_id': { $gt: ?2 } } ] }",
+            sort = "{ 'createdAt': 1, '_id': 1 }")
+    List<Comment> findPageByItemIdAfter(String itemId, LocalDateTime createdAt, String id, Pageable pageable);
+
+    // First page of the comments of one user, newest comments first
+    List<Comment> findByUsernameOrderByCreatedAtDescIdDesc(String username, Pageable pageable);
+
+    // Next page of the comments of one user, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ 'username': ?0, $or: [ { 'createdAt': { $lt: ?1 } }, { 'createdAt': ?1, '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Comment> findPageByUsernameAfter(String username, LocalDateTime createdAt, String id, Pageable pageable);
 }
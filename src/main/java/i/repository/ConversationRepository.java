@@ -0,0 +1,110 @@
+package i.repository;
+
+import i.model.Conversation;
+import i.model.Message;
+import i.utils.CounterUtils;
+import i.utils.CursorUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Storage of the conversation summaries. Every change is made with atomic updates,
+ * so concurrent messages between the same users never lose a counter increment
+ * nor replace the last message with an older one.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConversationRepository {
+
+    public static final int PREVIEW_LENGTH = 100;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Records a sent message in the conversation of its sender and recipient, creating the conversation
+     * on the first message: the recipient's unread counter is incremented, and the last message is replaced
+     * unless a newer message was recorded already, since concurrent sends may be recorded out of order.
+     *
+     * @param message the saved message
+     */
+    public void recordMessage(Message message) {
+        final List<String> participants = Conversation.participantsOf(message.getSender(), message.getRecipient());
+        final String recipientField = Conversation.unreadCountField(participants, message.getRecipient());
+        final String senderField = Conversation.unreadCountField(participants, message.getSender());
+        final String id = Conversation.idOf(message.getSender(), message.getRecipient());
+
+        final Update counters = new Update().setOnInsert("participants", participants);
+        if (recipientField.equals(senderField)) {
+            // A message to oneself is never unread
+            counters.setOnInsert("firstUnreadCount", 0L).setOnInsert("secondUnreadCount", 0L);
+        } else {
+            counters.inc(recipientField, 1).setOnInsert(senderField, 0L);
+        }
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)), counters, Conversation.class);
+
+        // Replace the last message only with a newer one, in the (createdAt, id) order of the messages
+        final Criteria olderLastMessage = new Criteria().orOperator(
+                Criteria.where("lastMessageAt").exists(false),
+                Criteria.where("lastMessageAt").lt(message.getCreatedAt()),
+                Criteria.where("lastMessageAt").is(message.getCreatedAt()).and("lastMessageId").lt(message.getId()));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id).andOperator(olderLastMessage)),
+                new Update()
+                        .set("lastMessageId", message.getId())
+                        .set("lastSender", message.getSender())
+                        .set("lastMessagePreview", preview(message.getContent()))
+                        .set("lastMessageAt", message.getCreatedAt()),
+                Conversation.class);
+    }
+
+    /**
+     * Counts messages of a conversation as read by one of its participants.
+     *
+     * @param username    the user who read the messages
+     * @param counterpart the other participant
+     * @param amount      the number of messages read
+     */
+    public void decrementUnread(String username, String counterpart, long amount) {
+        final List<String> participants = Conversation.participantsOf(username, counterpart);
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(Conversation.idOf(username, counterpart))),
+                CounterUtils.decrement(Conversation.unreadCountField(participants, username), amount),
+                Conversation.class);
+    }
+
+    /**
+     * Finds the conversations of a user, most recently active first.
+     *
+     * @param username the participant
+     * @param after    the key of the last conversation of the previous page, null for the first page
+     * @param limit    the maximum number of conversations
+     * @return the conversations
+     */
+    public List<Conversation> findPage(String username, CursorUtils.Keyset after, int limit) {
+        final Criteria criteria = Criteria.where("participants").is(username);
+        if (after != null) {
+            criteria.orOperator(
+                    Criteria.where("lastMessageAt").lt(after.getCreatedAt()),
+                    Criteria.where("lastMessageAt").is(after.getCreatedAt()).and("_id").lt(after.getId()));
+        }
+        final Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Order.desc("lastMessageAt"), Sort.Order.desc("_id")))
+                .limit(limit);
+        return mongoTemplate.find(query, Conversation.class);
+    }
+
+    private static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        // Do not split a surrogate pair
+        final int end = Character.isHighSurrogate(content.charAt(PREVIEW_LENGTH - 1)) ? PREVIEW_LENGTH - 1 : PREVIEW_LENGTH;
+        return content.substring(0, end);
+    }
+}
@@ -0,0 +1,98 @@
+package i.repository;
+
+import i.model.EmailOutboxEntry;
+import i.model.EmailStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Storage of the email outbox. Entries are claimed atomically, so that several
+ * application instances can dispatch the same outbox without sending an email twice.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmailOutboxRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Adds an entry to the outbox.
+     *
+     * @param entry the entry to add
+     * @return the stored entry
+     */
+    public EmailOutboxEntry insert(EmailOutboxEntry entry) {
+        return mongoTemplate.insert(entry);
+    }
+
+    /**
+     * Claims the next entry due for delivery: a pending entry whose next attempt is due,
+     * or an entry whose previous claim expired without an outcome (e.g. the dispatcher crashed).
+     *
+     * @param now        the current time
+     * @param claimUntil the time until which the claim is held
+     * @return the claimed entry, or empty if no entry is due
+     */
+    public Optional<EmailOutboxEntry> claimNext(LocalDateTime now, LocalDateTime claimUntil) {
+        // While an entry is being sent, nextAttemptAt holds the end of its claim
+        final Query query = Query.query(Criteria.where("status").in(EmailStatus.PENDING, EmailStatus.SENDING)
+                        .and("nextAttemptAt").lte(now))
+                .with(Sort.by("nextAttemptAt"));
+        final Update update = new Update()
+                .set("status", EmailStatus.SENDING)
+                .set("nextAttemptAt", claimUntil)
+                .inc("attempts", 1);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), EmailOutboxEntry.class));
+    }
+
+    /**
+     * Marks a claimed entry as delivered.
+     *
+     * @param id     the ID of the entry
+     * @param sentAt the time of delivery
+     */
+    public void markSent(String id, LocalDateTime sentAt) {
+        mongoTemplate.updateFirst(claimed(id),
+                new Update().set("status", EmailStatus.SENT).set("sentAt", sentAt).unset("lastError"),
+                EmailOutboxEntry.class);
+    }
+
+    /**
+     * Returns a claimed entry to the outbox for another attempt.
+     *
+     * @param id            the ID of the entry
+     * @param nextAttemptAt the earliest time of the next attempt
+     * @param error         the error of the failed attempt
+     */
+    public void markRetry(String id, LocalDateTime nextAttemptAt, String error) {
+        mongoTemplate.updateFirst(claimed(id),
+                new Update().set("status", EmailStatus.PENDING).set("nextAttemptAt", nextAttemptAt).set("lastError", error),
+                EmailOutboxEntry.class);
+    }
+
+    /**
+     * Marks a claimed entry as permanently failed.
+     *
+     * @param id    the ID of the entry
+     * @param error the error of the last attempt
+     */
+    public void markFailed(String id, String error) {
+        mongoTemplate.updateFirst(claimed(id),
+                new Update().set("status", EmailStatus.FAILED).set("lastError", error),
+                EmailOutboxEntry.class);
+    }
+
+    private Query claimed(String id) {
+        return Query.query(Criteria.where("_id").is(id).and("status").is(EmailStatus.SENDING));
+    }
+}
@@ -0,0 +1,52 @@
+package i.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import i.model.ItemType;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Targeted server-side updates of items (Posts and Messages).
+ * Unlike repository save, these updates never rewrite the whole document.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Checks whether an item exists without loading it: only the _id field is read.
+     *
+     * @param itemType the type of the item, which selects the collection to look in
+     * @param itemId   the ID of the item
+     * @return true if the item exists, false otherwise
+     */
+    public boolean exists(ItemType itemType, String itemId) {
+        Query query = Query.query(Criteria.where("_id").is(itemId));
+        query.fields().include("_id");
+        return mongoTemplate.findOne(query, Document.class,
+                mongoTemplate.getCollectionName(itemType.getItemClass())) != null;
+    }
+
+    /**
+     * Atomically adds a comment ID to an item and increments its comment counter.
+     *
+     * @param itemType  the type of the item, which selects the collection to update
+     * @param itemId    the ID of the item
+     * @param commentId the ID of the comment to attach
+     * @return true if the item exists and was updated, false otherwise
+     */
+    public boolean attachComment(ItemType itemType, String itemId, String commentId) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(itemId)),
+                new Update().addToSet("commentIds", commentId).inc("commentCount", 1),
+                itemType.getItemClass());
+        return result.getMatchedCount() > 0;
+    }
+}
@@ -1,13 +1,40 @@
 package i.repository;
 
 import i.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends MongoRepository<Message, String> {
-    List<Message> findBySender(String sender);       // Поиск сообщений по отправителю
-    List<Message> findByRecipient(String recipient); // Поиск сообщений по получателю
+    // First page of the messages sent by a user, newest messages first
+    List<Message> findBySenderOrderByCreatedAtDescIdDesc(String sender, Pageable pageable);
+
+    // Next page of the messages sent by a user, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ 'sender': ?0, $or: [ { 'createdAt': { $lt: ?1 } }, { 'createdAt': ?1, '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Message> findPageBySenderAfter(String sender, LocalDateTime createdAt, String id, Pageable pageable);
+
+    // First page of the messages received by a user, newest messages first
+    List<Message> findByRecipientOrderByCreatedAtDescIdDesc(String recipient, Pageable pageable);
+
+    // Next page of the messages received by a user, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ 'recipient': ?0, $or: [ { 'createdAt': { $lt: ?1 } }, { 'createdAt': ?1, '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Message> findPageByRecipientAfter(String recipient, LocalDateTime createdAt, String id, Pageable pageable);
+
+    // Marks the unread messages of a sender to a recipient as read, up to and including the (createdAt, id) key
+    @Query("{ 'recipient': ?0, 'sender': ?1, 'readAt': null, $or: [ { 'createdAt': { $lt: ?2 } }, { 'createdAt': ?2, '_id': { $lte: ?3 } } ] }")
+    @Update("{ '$set': { 'readAt': ?4 } }")
+    long markReadUpTo(String recipient, String sender, LocalDateTime createdAt, String id, LocalDateTime readAt);
+
+    // Marks all unread messages of a sender to a recipient as read
+    @Query("{ 'recipient': ?0, 'sender': ?1, 'readAt': null }")
+    @Update("{ '$set': { 'readAt': ?2 } }")
+    long markAllRead(String recipient, String sender, LocalDateTime readAt);
 }
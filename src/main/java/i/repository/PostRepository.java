@@ -1,10 +1,44 @@
 package i.repository;
 
+import i.model.ImageRendition;
 import i.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface PostRepository extends MongoRepository<Post, String> {
-    List<Post> findByUsername(String username);
+    // First page of the feed, newest posts first
+    List<Post> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+    // Next page of the feed, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ $or: [ { 'createdAt': { $lt: ?0 } }, { 'createdAt': ?0, '_id': { $lt: ?1 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Post> findPageAfter(LocalDateTime createdAt, String id, Pageable pageable);
+
+    // First page of the posts of one author, newest posts first
+    List<Post> findByUsernameOrderByCreatedAtDescIdDesc(String username, Pageable pageable);
+
+    // Next page of the posts of one author, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ 'username': ?0, $or: [ { 'createdAt': { $lt: ?1 } }, { 'createdAt': ?1, '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Post> findPageByUsernameAfter(String username, LocalDateTime createdAt, String id, Pageable pageable);
+
+    // Sets the URL of an uploaded image, only while the upload of the post is still pending
+    @Query("{ '_id': ?0, 'imageStatus': 'PENDING' }")
+    @Update("{ '$set': { 'imageUrl': ?1, 'imageStatus': 'READY' } }")
+    long markImageReady(String id, String imageUrl);
+
+    // Sets the downscaled copies of the image of a post
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'renditions': ?1 } }")
+    long setRenditions(String id, List<ImageRendition> renditions);
+
+    // Records that the image of a post could not be uploaded
+    @Query("{ '_id': ?0, 'imageStatus': 'PENDING' }")
+    @Update("{ '$set': { 'imageStatus': 'FAILED' } }")
+    long markImageFailed(String id);
 }
@@ -0,0 +1,52 @@
+package i.repository;
+
+import i.model.UnreadCounter;
+import i.utils.CounterUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Unread message counters of the users, one small document per user updated in place.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UnreadCounterRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Counts one more unread message for a user, creating the counter if needed.
+     *
+     * @param username the recipient of the message
+     */
+    public void increment(String username) {
+        mongoTemplate.upsert(byUsername(username), new Update().inc("count", 1), UnreadCounter.class);
+    }
+
+    /**
+     * Counts messages of a user as read.
+     *
+     * @param username the user who read the messages
+     * @param amount   the number of messages read
+     */
+    public void decrement(String username, long amount) {
+        mongoTemplate.updateFirst(byUsername(username), CounterUtils.decrement("count", amount), UnreadCounter.class);
+    }
+
+    /**
+     * @param username the user
+     * @return the number of messages the user has not read yet
+     */
+    public long count(String username) {
+        final UnreadCounter counter = mongoTemplate.findOne(byUsername(username), UnreadCounter.class);
+        return counter == null ? 0 : counter.getCount();
+    }
+
+    private static Query byUsername(String username) {
+        return Query.query(Criteria.where("_id").is(username));
+    }
+}
@@ -1,8 +1,12 @@
 package i.repository;
 
 import i.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends MongoRepository<User, String> {
@@ -10,5 +14,19 @@ public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByUsername(String username);
     Optional<User> findByConfirmationToken(String confirmationToken);
     boolean existsByUsername(String username);
+    boolean existsByEmail(String email);
+
+    // Users whose username matches the regular expression, ignoring case; only the summary fields are read
+    @Query(value = "{ 'username': { $regex: ?0, $options: 'i' } }", fields = "{ 'username': 1, 'createdAt': 1 }")
+    List<User> findByUsernameMatching(String regex, Pageable pageable);
+
+    // First page of the user directory, newest users first; only the summary fields are read
+    @Query(value = "{}", fields = "{ 'username': 1, 'createdAt': 1 }", sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<User> findSummaryPage(Pageable pageable);
+
+    // Next page of the user directory, starting after the (createdAt, id) key of the previous page
+    @Query(value = "{ $or: [ { 'createdAt': { $lt: ?0 } }, { 'createdAt': ?0, '_id': { $lt: ?1 } } ] }",
+            fields = "{ 'username': 1, 'createdAt': 1 }", sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<User> findSummaryPageAfter(LocalDateTime createdAt, String id, Pageable pageable);
 }
 
@@ -0,0 +1,144 @@
+package i.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import i.dto.UserSummaryDto;
+import i.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers whether a username exists without querying the database in the common cases.
+ * A small cache of usernames confirmed to exist answers "yes" for active users; other usernames
+ * are looked up. A Bloom filter over all usernames can also answer "no" for unknown usernames,
+ * but only on a single instance: a user registered on another instance is missing from the filter
+ * until the next catch-up, so by default a miss of the filter is confirmed with the database.
+ * Users are never deleted, so the filter never needs to forget a username.
+ */
+@Slf4j
+@Component
+public class UserExistenceFilter implements UsernameIndex {
+
+    private final UserRepository userRepository;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final Cache<String, Boolean> existing;   // Usernames confirmed to exist
+
+    private final boolean trustMisses;               // Whether a miss of the filter proves that a user does not exist
+
+    private volatile boolean loaded;
+
+    public UserExistenceFilter(
+            UserRepository userRepository,
+            @Value("${search.user-existence.expected-users:1000000}") long expectedUsers,
+            @Value("${search.user-existence.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${search.user-existence.cache-size:10000}") long cacheSize,
+            @Value("${search.user-existence.trust-misses:false}") boolean trustMisses) {
+        this.userRepository = userRepository;
+        this.trustMisses = trustMisses;
+
+        // Optimal Bloom filter size and number of hash functions for the expected number of users
+        final double bitsPerUser = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final long words = Math.max(1, (long) Math.ceil(expectedUsers * bitsPerUser / Long.SIZE));
+        this.bits = new AtomicLongArray(Math.toIntExact(words));
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round(bitsPerUser * Math.log(2)));
+        this.existing = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        log.debug("User existence filter: {} bits, {} hash functions", bitCount, hashCount);
+    }
+
+    @Override
+    public void add(UserSummaryDto user) {
+        final long hash = hash(user.getUsername());
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = bit(hash, i);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    @Override
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Checks whether a user with the given username exists.
+     * Unless misses of the filter are trusted and all users are loaded into it, only the cache
+     * can spare the database query.
+     *
+     * @param username the username to check
+     * @return true if the user exists
+     */
+    public boolean exists(String username) {
+        if (trustMisses && loaded && !mightContain(username)) {
+            return false;
+        }
+        if (existing.getIfPresent(username) != null) {
+            return true;
+        }
+        final boolean exists = userRepository.existsByUsername(username);
+        if (exists) {
+            existing.put(username, Boolean.TRUE);
+            add(new UserSummaryDto(null, username, null));
+        }
+        return exists;
+    }
+
+    /**
+     * @param username the username to check
+     * @return false if the username was never added, true if it probably was
+     */
+    boolean mightContain(String username) {
+        final long hash = hash(username);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = bit(hash, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Position of the i-th bit of a username, by double hashing: h1 + i * h2
+    private long bit(long hash, int i) {
+        final long h1 = mix(hash);
+        final long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        return Long.remainderUnsigned(h1 + i * h2, bitCount);
+    }
+
+    // 64-bit FNV-1a over the characters of the username
+    private static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < username.length(); i++) {
+            hash ^= username.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Finalizer of MurmurHash3, spreads the bits of the hash
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53e94cdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,183 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant username lookup: a BK-tree over lowercase usernames, keyed by Levenshtein distance.
+ * By the triangle inequality, only the children whose edge distance lies within maxDistance of the
+ * distance between the query and their parent can hold a match, so most of the tree is never visited.
+ */
+@Component
+public class UsernameFuzzyIndex implements UsernameIndex {
+
+    public static final int MAX_DISTANCE = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<String> usernames = new HashSet<>();  // Exact usernames already indexed
+
+    private Node root;
+    private volatile boolean loaded;
+
+    @Override
+    public void add(UserSummaryDto user) {
+        final String lowercase = user.getUsername().toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        try {
+            if (!usernames.add(user.getUsername())) {
+                return;
+            }
+            if (root == null) {
+                root = new Node(lowercase, user);
+                return;
+            }
+            Node node = root;
+            while (true) {
+                // The distance never exceeds the longer length, so that bound makes it exact
+                final int distance = distance(lowercase, node.lowercase, Math.max(lowercase.length(), node.lowercase.length()));
+                if (distance == 0) {
+                    // Usernames differing only by case share a node
+                    node.users.add(user);
+                    return;
+                }
+                final Node child = node.children.get(distance);
+                if (child == null) {
+                    node.addChild(distance, new Node(lowercase, user));
+                    return;
+                }
+                node = child;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Finds the users whose username is within maxDistance edits of the query, ignoring case.
+     * The closest usernames come first, then in alphabetical order.
+     *
+     * @param query       the possibly misspelled username
+     * @param maxDistance the maximum number of insertions, deletions or substitutions, at most {@link #MAX_DISTANCE}
+     * @param limit       the maximum number of users to return
+     * @return the matching users, at most limit
+     */
+    public List<UserSummaryDto> search(String query, int maxDistance, int limit) {
+        final String needle = query.trim().toLowerCase(Locale.ROOT);
+        final int radius = Math.min(maxDistance, MAX_DISTANCE);
+        if (needle.isEmpty() || radius < 0 || limit <= 0) {
+            return List.of();
+        }
+
+        final List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (root == null) {
+                return List.of();
+            }
+            final Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                final Node node = pending.pop();
+                // Children are only reachable within radius of this distance, so it may be capped there
+                final int distance = distance(needle, node.lowercase, radius + node.maxEdge);
+                if (distance <= radius) {
+                    for (UserSummaryDto user : node.users) {
+                        matches.add(new Match(user, distance));
+                    }
+                }
+                for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - distance) <= radius) {
+                        pending.push(child.getValue());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingInt(Match::distance)
+                        .thenComparing(match -> match.user().getUsername()))
+                .limit(limit)
+                .map(Match::user)
+                .toList();
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, giving up once it exceeds a bound.
+     *
+     * @param a     the first string
+     * @param b     the second string
+     * @param bound the largest distance of interest
+     * @return the distance, or bound + 1 if it is larger than bound
+     */
+    static int distance(String a, String b, int bound) {
+        if (Math.abs(a.length() - b.length()) > bound) {
+            return bound + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                final int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], bound + 1);
+    }
+
+    private record Match(UserSummaryDto user, int distance) {
+    }
+
+    private static class Node {
+        private final String lowercase;
+        private final List<UserSummaryDto> users = new ArrayList<>(1);
+        private final Map<Integer, Node> children = new HashMap<>();  // Children by distance to this node
+        private int maxEdge;                                           // Largest key of children
+
+        Node(String lowercase, UserSummaryDto user) {
+            this.lowercase = lowercase;
+            this.users.add(user);
+        }
+
+        void addChild(int distance, Node child) {
+            children.put(distance, child);
+            maxEdge = Math.max(maxEdge, distance);
+        }
+    }
+}
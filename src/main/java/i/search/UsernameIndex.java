@@ -0,0 +1,26 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+
+/**
+ * An in-memory index over the usernames of all users, kept in sync by {@link UsernameIndexSynchronizer}.
+ */
+public interface UsernameIndex {
+
+    /**
+     * Adds a user to the index. Adding a user that is already indexed has no effect.
+     *
+     * @param user the user to add
+     */
+    void add(UserSummaryDto user);
+
+    /**
+     * Marks the index as complete: all users existing at startup have been added.
+     */
+    void markLoaded();
+
+    /**
+     * @return true once all users existing at startup have been added
+     */
+    boolean isLoaded();
+}
@@ -0,0 +1,97 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+import i.event.UserRegisteredEvent;
+import i.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the in-memory username indexes in sync with the users collection.
+ * All users are loaded once at startup, in the background and reading only the summary fields.
+ * Users registered on this instance are added as soon as they are saved; users registered
+ * on other instances are picked up by a periodic catch-up on the creation date.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UsernameIndexSynchronizer implements CommandLineRunner {
+
+    // Users created up to this long before the last seen user are read again, to tolerate clock skew
+    private static final long CATCH_UP_OVERLAP_SECONDS = 60;
+
+    private final MongoTemplate mongoTemplate;
+    private final List<UsernameIndex> indexes;
+
+    private volatile LocalDateTime watermark;   // Creation date of the newest user read from the database
+
+    @Override
+    public void run(String... args) {
+        Thread thread = new Thread(this::catchUp, "username-index-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds a user registered on this instance to all indexes.
+     *
+     * @param event the registration event
+     */
+    @EventListener
+    public void onUserRegistered(UserRegisteredEvent event) {
+        indexes.forEach(index -> index.add(event.user()));
+    }
+
+    /**
+     * Reads the users created since the last catch-up, or all users if the indexes are not loaded yet.
+     */
+    @Scheduled(fixedDelayString = "${search.username-index.catch-up-interval-ms:60000}",
+            initialDelayString = "${search.username-index.catch-up-interval-ms:60000}")
+    public synchronized void catchUp() {
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final LocalDateTime since = watermark;
+        final Query query = since == null
+                ? new Query()
+                : Query.query(Criteria.where("createdAt").gte(since.minusSeconds(CATCH_UP_OVERLAP_SECONDS)));
+        query.with(Sort.by("createdAt", "_id"));
+        query.fields().include("username", "createdAt");
+
+        int count = 0;
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                final UserSummaryDto summary = new UserSummaryDto(user.getId(), user.getUsername(), user.getCreatedAt());
+                indexes.forEach(index -> index.add(summary));
+                if (user.getCreatedAt() != null && (watermark == null || user.getCreatedAt().isAfter(watermark))) {
+                    watermark = user.getCreatedAt();
+                }
+                count++;
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to load users into the username indexes", e);
+            return;
+        }
+
+        if (since == null) {
+            if (watermark == null) {
+                // No users yet: later catch-ups only need the users created from now on
+                watermark = startedAt;
+            }
+            indexes.forEach(UsernameIndex::markLoaded);
+            log.info("Username indexes loaded with {} users", count);
+        } else {
+            log.debug("Username indexes caught up with {} users", count);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive substring search over usernames.
+ * Prefix matches come from a sorted map of lowercase usernames; other matches come from
+ * posting lists of the bigrams and trigrams of every username, intersected and then verified.
+ * Users are numbered in the order they are added, so posting lists stay sorted.
+ */
+@Component
+public class UsernameSearchIndex implements UsernameIndex {
+
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<UserSummaryDto> users = new ArrayList<>();             // Indexed users by number
+    private final List<String> lowercaseUsernames = new ArrayList<>();        // Lowercase usernames by number
+    private final Map<String, Integer> numbersByUsername = new HashMap<>();   // User numbers by exact username
+    private final NavigableMap<String, Integer> numbersByLowercase = new TreeMap<>(); // Keyed by lowercase username + '\0' + username
+    private final Map<String, Postings> postingsByGram = new HashMap<>();     // User numbers by username n-gram
+
+    private volatile boolean loaded;
+
+    @Override
+    public void add(UserSummaryDto user) {
+        lock.writeLock().lock();
+        try {
+            if (numbersByUsername.containsKey(user.getUsername())) {
+                return;
+            }
+            final int number = users.size();
+            final String lowercase = user.getUsername().toLowerCase(Locale.ROOT);
+            users.add(user);
+            lowercaseUsernames.add(lowercase);
+            numbersByUsername.put(user.getUsername(), number);
+            numbersByLowercase.put(lowercase + '\0' + user.getUsername(), number);
+            for (String gram : grams(lowercase)) {
+                postingsByGram.computeIfAbsent(gram, key -> new Postings()).add(number);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Finds the users whose username contains the query, ignoring case.
+     * Usernames starting with the query come first, in alphabetical order,
+     * followed by the other matches in registration order.
+     *
+     * @param query the substring to look for
+     * @param limit the maximum number of users to return
+     * @return the matching users, at most limit
+     */
+    public List<UserSummaryDto> search(String query, int limit) {
+        final String needle = query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            final Set<Integer> matches = new LinkedHashSet<>();
+
+            // Prefix matches: a range of the sorted map
+            for (Integer number : numbersByLowercase.subMap(needle, true, needle + Character.MAX_VALUE, true).values()) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                matches.add(number);
+            }
+
+            if (matches.size() < limit) {
+                if (needle.length() < MIN_GRAM) {
+                    scanAll(needle, limit, matches);
+                } else {
+                    searchGrams(needle, limit, matches);
+                }
+            }
+
+            final List<UserSummaryDto> result = new ArrayList<>(matches.size());
+            for (Integer number : matches) {
+                result.add(users.get(number));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed users
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return users.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void searchGrams(String needle, int limit, Set<Integer> matches) {
+        // Intersect the posting lists of the needle's grams, starting with the shortest one
+        final List<String> needleGrams = needle.length() <= MAX_GRAM ? List.of(needle) : grams(needle, MAX_GRAM);
+        final List<Postings> lists = new ArrayList<>(needleGrams.size());
+        for (String gram : needleGrams) {
+            final Postings postings = postingsByGram.get(gram);
+            if (postings == null) {
+                return;
+            }
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        final Postings shortest = lists.get(0);
+        for (int i = 0; i < shortest.size && matches.size() < limit; i++) {
+            final int number = shortest.numbers[i];
+            if (matches.contains(number)) {
+                continue;
+            }
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(number);
+            }
+            // The grams may appear in another order, so the candidate is verified
+            if (inAll && lowercaseUsernames.get(number).contains(needle)) {
+                matches.add(number);
+            }
+        }
+    }
+
+    private void scanAll(String needle, int limit, Set<Integer> matches) {
+        for (int number = 0; number < lowercaseUsernames.size() && matches.size() < limit; number++) {
+            if (lowercaseUsernames.get(number).contains(needle)) {
+                matches.add(number);
+            }
+        }
+    }
+
+    private static List<String> grams(String lowercase) {
+        final List<String> grams = new ArrayList<>();
+        for (int length = MIN_GRAM; length <= MAX_GRAM; length++) {
+            grams.addAll(grams(lowercase, length));
+        }
+        return grams.stream().distinct().toList();
+    }
+
+    private static List<String> grams(String lowercase, int length) {
+        final List<String> grams = new ArrayList<>();
+        for (int start = 0; start + length <= lowercase.length(); start++) {
+            grams.add(lowercase.substring(start, start + length));
+        }
+        return grams;
+    }
+
+    /**
+     * Sorted, growable list of user numbers.
+     */
+    private static class Postings {
+        private int[] numbers = new int[4];
+        private int size;
+
+        void add(int number) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        boolean contains(int number) {
+            return Arrays.binarySearch(numbers, 0, size, number) >= 0;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package i.security;
 
 import i.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 public class CustomUserDetails implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final RoleCatalog roleCatalog;
 
     /**
      * Loads a user by username.
@@ -39,9 +39,7 @@ public class CustomUserDetails implements UserDetailsService {
         return new User(
                 user.getUsername(),
                 user.getPassword(),
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority(role.getName()))
-                        .toList()
+                roleCatalog.authorities(user.getRoles())
         );
     }
 }
\ No newline at end of file
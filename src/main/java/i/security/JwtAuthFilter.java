@@ -1,5 +1,6 @@
 package i.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,45 +23,53 @@ import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/messages/stream";
+    private static final String ACCESS_TOKEN_PARAMETER = "access_token";
+
     private final JwtUtils jwtUtils;
 
     @Setter
     private UserDetailsService userDetailsService;
 
+    // When set, the principal is built from the signed token claims instead of being loaded
+    @Setter
+    private boolean stateless;
+
     @Override
     public void doFilterInternal(
             HttpServletRequest request,
             HttpServletResponse response,
             FilterChain filterChain) throws ServletException, IOException {
 
-        // Extract the Authorization header
-        final String authHeader = request.getHeader(AUTHORIZATION);
-
-        // Check if the header is present and starts with "Bearer "
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        // Extract the token from the Authorization header, or from the query of the event stream
+        final String jwtToken = resolveToken(request);
+        if (jwtToken == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        final String jwtToken = authHeader.substring(7); // Remove "Bearer " prefix
-        String username;
+        final Claims claims;
 
         try {
-            // Extract username from the token
-            username = jwtUtils.extractUsername(jwtToken);
+            // Verify the token once; its claims are reused below
+            claims = jwtUtils.verify(jwtToken);
         } catch (Exception e) {
             // If token is invalid, return 401 Unauthorized
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             return;
         }
 
+        final String username = claims.getSubject();
+
         // If username is extracted and the user is not already authenticated
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            // Load UserDetails using the extracted username
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Build UserDetails from the token, or load them using the extracted username
+            UserDetails userDetails = stateless
+                    ? jwtUtils.extractUserDetails(claims)
+                    : userDetailsService.loadUserByUsername(username);
 
             // Validate the token
-            if (jwtUtils.isTokenValid(jwtToken, userDetails)) {
+            if (jwtUtils.isTokenValid(claims, userDetails)) {
                 // Create an authentication token for the user
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(
@@ -79,4 +88,23 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         // Continue with the filter chain
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Reads the token from the "Bearer" Authorization header. Browsers cannot set headers on
+     * an EventSource, so the event stream also accepts the token as the access_token query parameter.
+     *
+     * @param request the HTTP request
+     * @return the token, or null if the request carries none
+     */
+    private String resolveToken(HttpServletRequest request) {
+        final String authHeader = request.getHeader(AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7); // Remove "Bearer " prefix
+        }
+        if (STREAM_PATH.equals(request.getServletPath())) {
+            final String token = request.getParameter(ACCESS_TOKEN_PARAMETER);
+            return token == null || token.isBlank() ? null : token;
+        }
+        return null;
+    }
 }
@@ -1,15 +1,30 @@
 package i.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
@@ -20,9 +35,58 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class JwtUtils {
 
+    private static final long MAX_VERIFIED_TOKENS = 10_000;
+    private static final Duration MAX_VERIFIED_TOKEN_TTL = Duration.ofHours(1);
+
     // Using a secure key generated by the library
     private final SecretKey jwtSignKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
+    // The parser is immutable and thread-safe, so one instance is shared by all requests
+    private final JwtParser jwtParser = Jwts.parserBuilder()
+            .setSigningKey(jwtSignKey) // Specify the signing key
+            .build();
+
+    // Claims of already verified tokens, keyed by token digest and dropped when the token expires
+    private final Cache<String, Claims> verifiedClaims = Caffeine.newBuilder()
+            .maximumSize(MAX_VERIFIED_TOKENS)
+            .expireAfter(new Expiry<String, Claims>() {
+                @Override
+                public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+                    return timeToLive(claims);
+                }
+
+                @Override
+                public long expireAfterUpdate(String digest, Claims claims, long currentTime, long currentDuration) {
+                    return timeToLive(claims);
+                }
+
+                @Override
+                public long expireAfterRead(String digest, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    /**
+     * Verifies the signature and expiration of the JWT token and returns its claims.
+     * Claims of a token verified before are returned from the cache until the token expires.
+     *
+     * @param token JWT token
+     * @return the verified claims
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public Claims verify(String token) {
+        final String digest = digest(token);
+        final Claims cached = verifiedClaims.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        final Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedClaims.put(digest, claims);
+        return claims;
+    }
+
     /**
      * Extracts the username from the JWT token.
      *
@@ -47,6 +111,27 @@ public class JwtUtils {
         return Objects.nonNull(claims.get(claimName));
     }
 
+    /**
+     * Builds the principal from the subject and the signed authorities claim of verified claims.
+     *
+     * @param claims the claims returned by {@link #verify(String)}
+     * @return the user details described by the claims
+     */
+    public UserDetails extractUserDetails(Claims claims) {
+        log.info("Extracting user details from claims.");
+        final List<GrantedAuthority> authorities = new ArrayList<>();
+        if (claims.get("authorities") instanceof Collection<?> values) {
+            for (Object value : values) {
+                // Authorities are serialized as {"authority": "ROLE_..."} objects
+                final Object authority = value instanceof Map<?, ?> map ? map.get("authority") : value;
+                if (authority != null) {
+                    authorities.add(new SimpleGrantedAuthority(authority.toString()));
+                }
+            }
+        }
+        return new User(claims.getSubject(), "", authorities);
+    }
+
     /**
      * Extracts the expiration date from the JWT token.
      *
@@ -80,11 +165,7 @@ public class JwtUtils {
      */
     private Claims extractAllClaims(String token) {
         log.info("Extracting all claims from token.");
-        return Jwts.parserBuilder()
-                .setSigningKey(jwtSignKey) // Specify the signing key
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return verify(token);
     }
 
     /**
@@ -148,10 +229,46 @@ public class JwtUtils {
      * @return true if the token is valid, false otherwise
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+
+    /**
+     * Validates verified claims by comparing the username and checking if the token is expired.
+     *
+     * @param claims the claims returned by {@link #verify(String)}
+     * @param userDetails the user details
+     * @return true if the token is valid, false otherwise
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
         log.info("Validating token.");
-        final String username = extractUsername(token);
-        boolean isValid = username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        boolean isValid = userDetails.getUsername().equals(claims.getSubject())
+                && claims.getExpiration().after(new Date());
         log.info("Token validation result: {}", isValid);
         return isValid;
     }
+
+    /**
+     * Computes how long verified claims may be cached: until the token expires, at most one hour.
+     */
+    private static long timeToLive(Claims claims) {
+        final Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return 0;
+        }
+        final long millis = Math.min(expiration.getTime() - System.currentTimeMillis(),
+                MAX_VERIFIED_TOKEN_TTL.toMillis());
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    /**
+     * Hashes the token, so that the cache does not hold usable bearer tokens.
+     */
+    private static String digest(String token) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package i.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import i.event.UserRolesChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+
+/**
+ * Bounded, time-limited cache of the principals loaded for authenticated requests.
+ * Only found users are cached; a missing user is looked up again on every request.
+ * Hit and miss counts are published as the "principals" cache metrics.
+ */
+@Slf4j
+public class PrincipalCache implements MeterBinder {
+
+    private final UserDetailsService delegate;
+    private final Cache<String, UserDetails> cache;
+
+    public PrincipalCache(UserDetailsService delegate, long maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached principal of a user, loading it from the delegate on a miss.
+     *
+     * @param username the username of the user to load
+     * @return UserDetails containing user information
+     * @throws UsernameNotFoundException if the user is not found
+     */
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cache.get(username, delegate::loadUserByUsername);
+    }
+
+    /**
+     * Drops the cached principal of a user, so that the next request reloads it.
+     *
+     * @param username the username of the user
+     */
+    public void invalidate(String username) {
+        log.debug("Invalidating cached principal of user: {}", username);
+        cache.invalidate(username);
+    }
+
+    /**
+     * Drops the cached principal of a user whose roles changed.
+     *
+     * @param event the role change event
+     */
+    @EventListener
+    public void onUserRolesChanged(UserRolesChangedEvent event) {
+        invalidate(event.username());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "principals");
+    }
+}
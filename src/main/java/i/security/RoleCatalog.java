@@ -0,0 +1,105 @@
+package i.security;
+
+import i.model.Role;
+import i.repository.RoleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory catalog of all roles, loaded by {@link i.config.RoleInitializer} and refreshed when a role is saved.
+ * Roles practically never change, so the catalog is an immutable snapshot replaced as a whole on every change;
+ * reads take no lock and issue no query. The granted authority of every role is created once and shared.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoleCatalog {
+
+    private final RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    /**
+     * Replaces the catalog with all roles stored in the database.
+     */
+    public synchronized void load() {
+        final Map<String, Role> roles = new HashMap<>();
+        roleRepository.findAll().forEach(role -> roles.put(role.getName(), copy(role)));
+        snapshot = Snapshot.of(roles);
+        log.info("Role catalog loaded with {} roles", roles.size());
+    }
+
+    /**
+     * Adds a saved role to the catalog, replacing any role with the same name.
+     *
+     * @param role the saved role
+     */
+    public synchronized void register(Role role) {
+        final Map<String, Role> roles = new HashMap<>(snapshot.rolesByName());
+        roles.put(role.getName(), copy(role));
+        snapshot = Snapshot.of(roles);
+    }
+
+    /**
+     * Finds a role by name. A role missing from the catalog, for example one created by another
+     * instance, is looked up in the database once and added to the catalog if it exists.
+     *
+     * @param name the name of the role
+     * @return a copy of the role, or empty if no such role exists
+     */
+    public Optional<Role> findByName(String name) {
+        final Role role = snapshot.rolesByName().get(name);
+        if (role != null) {
+            return Optional.of(copy(role));
+        }
+        final Optional<Role> stored = roleRepository.findByName(name);
+        stored.ifPresent(this::register);
+        return stored;
+    }
+
+    /**
+     * Returns the shared granted authority of a role.
+     *
+     * @param name the name of the role
+     * @return the authority, created on the fly for roles missing from the catalog
+     */
+    public GrantedAuthority authority(String name) {
+        final GrantedAuthority authority = snapshot.authoritiesByName().get(name);
+        return authority != null ? authority : new SimpleGrantedAuthority(name);
+    }
+
+    /**
+     * Returns the granted authorities of a set of roles.
+     *
+     * @param roles the roles of a user
+     * @return the authorities, in the iteration order of the roles
+     */
+    public List<GrantedAuthority> authorities(Collection<Role> roles) {
+        return roles.stream()
+                .map(role -> authority(role.getName()))
+                .toList();
+    }
+
+    // Users embed their roles, so callers get copies and cannot change the catalog
+    private static Role copy(Role role) {
+        return new Role(role.getId(), role.getName());
+    }
+
+    private record Snapshot(Map<String, Role> rolesByName, Map<String, GrantedAuthority> authoritiesByName) {
+
+        static Snapshot of(Map<String, Role> roles) {
+            final Map<String, GrantedAuthority> authorities = new HashMap<>();
+            roles.keySet().forEach(name -> authorities.put(name, new SimpleGrantedAuthority(name)));
+            return new Snapshot(Map.copyOf(roles), Map.copyOf(authorities));
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package i.security;
 
 import i.repository.UserRepository;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,7 +15,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -22,7 +23,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
-import java.util.stream.Collectors;
+import java.time.Duration;
 
 @Configuration
 @EnableWebSecurity
@@ -31,17 +32,25 @@ public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
     private final UserRepository userRepository;
+    private final RoleCatalog roleCatalog;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        jwtAuthFilter.setUserDetailsService(userDetailsService());
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            PrincipalCache principalCache,
+            @Value("${security.jwt.stateless:false}") boolean stateless) throws Exception {
+        jwtAuthFilter.setUserDetailsService(principalCache::loadUserByUsername);
+        jwtAuthFilter.setStateless(stateless);
 
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(requests -> requests
+                        // Async dispatches continue a request that was authorized already (event stream)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.POST, "/users/register").permitAll() // Allow user registration
                         .requestMatchers("/users/confirm-email").permitAll() // Allow email confirmation
                         .requestMatchers("/auth/login").permitAll() // Allow login
+                        .requestMatchers(HttpMethod.GET, "/files/*").permitAll() // Stored files are public, like Imgur links
                         .anyRequest().authenticated()) // Require authentication for other requests
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
@@ -69,15 +78,24 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Caches the principals loaded by the JWT filter, so that authenticated requests
+     * do not read the user from the database every time.
+     */
+    @Bean
+    public PrincipalCache principalCache(
+            @Value("${security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${security.principal-cache.ttl:5m}") Duration ttl) {
+        return new PrincipalCache(userDetailsService(), maxSize, ttl);
+    }
+
     @Bean
     public UserDetailsService userDetailsService() {
         return username -> userRepository.findByUsername(username)
                 .map(user -> new User(
                         user.getUsername(),
                         user.getPassword(),
-                        user.getRoles().stream()
-                                .map(role -> new SimpleGrantedAuthority(role.getName()))
-                                .collect(Collectors.toList())))
+                        roleCatalog.authorities(user.getRoles())))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
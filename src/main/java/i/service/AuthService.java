@@ -1,69 +1,89 @@
 package i.service;
 
 import i.dto.AuthenticationRequestDto;
+import i.dto.RoleDto;
 import i.dto.TokenDto;
 import i.dto.UserDto;
 import i.exception.EmailNotVerifiedException;
 import i.model.User;
 import i.repository.UserRepository;
 import i.security.JwtUtils;
+import i.security.RoleCatalog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
-    private final UserDetailsService userDetailsService;
     private final JwtUtils jwtUtils;
     private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final RoleCatalog roleCatalog;
     private final ModelMapper modelMapper;
 
     /**
      * Authenticates the user and generates a JWT token.
+     * The user is loaded once; the password check, the email verification check,
+     * the token and the response are all based on that single lookup.
      * @param dto The authentication request DTO containing the username and password.
      * @return The generated token DTO containing the user details and the JWT token.
+     * @throws BadCredentialsException If the user does not exist or the password does not match.
+     * @throws EmailNotVerifiedException If the user's email is not verified yet.
      */
     public TokenDto token(AuthenticationRequestDto dto) {
         log.debug("Attempting authentication for user: {}", dto.getUsername());
 
-        // Authenticate the user by username and password
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(dto.getUsername(), dto.getPassword()));
-
-        // Load user details from UserDetailsService
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(dto.getUsername());
-
-        // Retrieve the current user from the database
+        // Retrieve the user from the database
         final User currentUser = userRepository.findByUsername(dto.getUsername())
                 .orElseThrow(() -> {
-                    log.error("User not found with username: {}", dto.getUsername());
-                    return new RuntimeException("User not found");
+                    log.warn("Authentication failed, user not found: {}", dto.getUsername());
+                    return new BadCredentialsException("Bad credentials");
                 });
 
+        // Check the password against the stored one
+        if (!passwordEncoder.matches(dto.getPassword(), currentUser.getPassword())) {
+            log.warn("Authentication failed, bad password for user: {}", dto.getUsername());
+            throw new BadCredentialsException("Bad credentials");
+        }
+
         // Check if the user's email is verified
         if (!currentUser.isEmailVerified()) {
             log.warn("User's email not verified: {}", dto.getUsername());
             throw new EmailNotVerifiedException("Email not verified");
         }
-
-        // Map the current user to UserDto for response
-        UserDto userDto = modelMapper.map(currentUser, UserDto.class);
         log.debug("User authenticated successfully: {}", dto.getUsername());
 
         // Generate the JWT token
+        final UserDetails userDetails = new org.springframework.security.core.userdetails.User(
+                currentUser.getUsername(),
+                currentUser.getPassword(),
+                roleCatalog.authorities(currentUser.getRoles()));
         String token = jwtUtils.generateToken(userDetails);
         log.debug("JWT token generated for user: {}", dto.getUsername());
 
         // Return the token DTO containing user details and token
-        return new TokenDto(userDto, token);
+        return new TokenDto(toUserDto(currentUser), token);
+    }
+
+    /**
+     * Converts the User entity to a UserDto, mapping the fields by name.
+     */
+    private UserDto toUserDto(User user) {
+        final UserDto userDto = modelMapper.map(user, UserDto.class);
+        final Set<RoleDto> roles = user.getRoles().stream()
+                .map(role -> new RoleDto(role.getId(), role.getName()))
+                .collect(Collectors.toSet());
+        userDto.setRoles(roles);
+        return userDto;
     }
 }
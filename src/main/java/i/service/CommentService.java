@@ -3,32 +3,38 @@ package i.service;
 import i.dto.CommentCreateRequestDto;
 import i.dto.CommentCreateResponseDto;
 import i.dto.CommentDto;
+import i.dto.CommentNodeDto;
+import i.dto.PageDto;
 import i.exception.CommentNotFoundException;
 import i.exception.MessageOrPostNotFoundException;
 import i.model.Comment;
-import i.model.Item;
-import i.model.Message;
-import i.model.Post;
-import i.repository.PostRepository;
+import i.model.ItemType;
+import i.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import i.repository.CommentRepository;
-import i.repository.MessageRepository;
+import i.utils.CursorUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CommentService {
 
+    public static final int DEFAULT_TREE_DEPTH = 3;
+    public static final int MAX_TREE_DEPTH = 10;
+
     private final CommentRepository commentRepository;
-    private final PostRepository postRepository;
-    private final MessageRepository messageRepository;
+    private final ItemRepository itemRepository;
     private final ModelMapper mapper;
 
     /**
@@ -40,12 +46,16 @@ public class CommentService {
     public CommentCreateResponseDto createComment(CommentCreateRequestDto requestDto, String username) {
         log.debug("Attempting to create comment for item ID: {}", requestDto.getItemId());
 
-        // Fetch the item (Post or Message) by ID
-        Item item = getItemById(requestDto.getItemId());
-        log.debug("Item found: {}", item);
+        // Check that the item exists in the collection of its type, without loading it
+        final ItemType itemType = requestDto.getItemType();
+        if (!itemRepository.exists(itemType, requestDto.getItemId())) {
+            log.error("No {} found with ID: {}", itemType, requestDto.getItemId());
+            throw new MessageOrPostNotFoundException("No " + itemType + " found with ID " + requestDto.getItemId());
+        }
 
         Comment comment = new Comment();
-        comment.setItemId(item.getId());
+        comment.setItemId(requestDto.getItemId());
+        comment.setType(itemType);
         comment.setContent(requestDto.getContent());
         comment.setParentCommentId(requestDto.getParentCommentId());
         // Set additional fields for the comment
@@ -56,59 +66,191 @@ public class CommentService {
         comment = commentRepository.save(comment);
         log.debug("Comment saved with ID: {}", comment.getId());
 
-        // Add the comment to the item and save the item
-        item.getCommentIds().add(comment.getId());
-        saveItem(item);
+        // Attach the comment to its item with a single server-side update
+        if (!itemRepository.attachComment(itemType, comment.getItemId(), comment.getId())) {
+            // The item was deleted after the check; do not leave a comment that no item counts
+            log.error("{} with ID {} disappeared before comment {} was attached",
+                    itemType, comment.getItemId(), comment.getId());
+            commentRepository.deleteById(comment.getId());
+            throw new MessageOrPostNotFoundException("No " + itemType + " found with ID " + requestDto.getItemId());
+        }
 
         // Convert the saved entity to Response DTO and return
         return mapper.map(comment, CommentCreateResponseDto.class);
     }
 
     /**
-     * Retrieves an item (Post or Message) by its ID.
-     * @param itemId The ID of the item to fetch.
-     * @return The found item (Post or Message).
-     * @throws MessageOrPostNotFoundException If no item with the given ID is found.
+     * Retrieves a page of comments for a given item ID, oldest comments first.
+     * @param itemId The ID of the item to fetch comments for.
+     * @param limit The maximum number of comments to return, may be null.
+     * @param cursor The cursor of the last comment of the previous page, may be null.
+     * @return A page of Comment DTOs with the cursor of the next page.
      */
-    private Item getItemById(String itemId) {
-        log.debug("Fetching item with ID: {}", itemId);
-
-        return postRepository.findById(itemId).map(post -> (Item) post)
-                .orElseGet(() -> messageRepository.findById(itemId).map(message -> (Item) message)
-                        .orElseThrow(() -> {
-                            log.error("No Message or Post found with ID: {}", itemId);
-                            return new MessageOrPostNotFoundException("No Message or Post found with ID " + itemId);
-                        }));
+    public PageDto<CommentDto> listCommentsByPostId(String itemId, Integer limit, String cursor) {
+        log.debug("Listing comments for item ID: {}, cursor: {}", itemId, cursor);
+
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+
+        // Fetch one extra comment to find out whether a next page exists
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+        final List<Comment> comments = after == null
+                ? commentRepository.findByItemIdOrderByCreatedAtAscIdAsc(itemId, pageable)
+                : commentRepository.findPageByItemIdAfter(itemId, after.getCreatedAt(), after.getId(), pageable);
+
+        PageDto<CommentDto> page = toPage(comments, pageSize);
+        log.debug("Found {} comments for item ID: {}", page.getItems().size(), itemId);
+        return page;
     }
 
     /**
-     * Saves an item (either Post or Message) to the database.
-     * @param item The item to save.
+     * Retrieves the comments of an item as a tree of threads.
+     * All comments of the item are read with one indexed query and linked to their parents in a single pass.
+     * Each level holds at most maxChildren comments and the tree is cut at maxDepth levels;
+     * cut-off replies are flagged on their parent and can be fetched with {@link #listReplies}.
+     *
+     * @param itemId      The ID of the item to fetch comments for.
+     * @param maxDepth    The maximum number of levels to return, may be null.
+     * @param maxChildren The maximum number of comments per level, may be null.
+     * @param cursor      The cursor of the last top-level comment of the previous page, may be null.
+     * @return A page of top-level comments with their nested replies.
      */
-    private void saveItem(Item item) {
-        if (item instanceof Post) {
-            log.debug("Saving Post item with ID: {}", item.getId());
-            postRepository.save((Post) item);
-        } else if (item instanceof Message) {
-            log.debug("Saving Message item with ID: {}", item.getId());
-            messageRepository.save((Message) item);
+    public PageDto<CommentNodeDto> getCommentTree(String itemId, Integer maxDepth, Integer maxChildren, String cursor) {
+        log.debug("Building comment tree for item ID: {}, cursor: {}", itemId, cursor);
+
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+        final List<Comment> comments = commentRepository.findByItemIdOrderByCreatedAtAscIdAsc(itemId);
+        final Map<String, List<Comment>> repliesByParent = indexReplies(comments);
+
+        PageDto<CommentNodeDto> page = buildLevel(repliesByParent.getOrDefault(null, List.of()), after,
+                repliesByParent, 1, normalizeDepth(maxDepth), CursorUtils.normalizeLimit(maxChildren));
+
+        log.debug("Built comment tree for item ID: {} from {} comments", itemId, comments.size());
+        return page;
+    }
+
+    /**
+     * Retrieves the replies of a comment as a tree, continuing where the comment tree was cut off.
+     *
+     * @param commentId   The ID of the comment whose replies are fetched.
+     * @param maxDepth    The maximum number of levels to return, may be null.
+     * @param maxChildren The maximum number of comments per level, may be null.
+     * @param cursor      The cursor of the last reply already received, may be null.
+     * @return A page of direct replies with their nested replies.
+     * @throws CommentNotFoundException If the comment with the given ID is not found.
+     */
+    public PageDto<CommentNodeDto> listReplies(String commentId, Integer maxDepth, Integer maxChildren, String cursor) {
+        log.debug("Listing replies for comment ID: {}, cursor: {}", commentId, cursor);
+
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+        final Comment parent = commentRepository.findById(commentId)
+                .orElseThrow(() -> {
+                    log.error("Comment not found with ID: {}", commentId);
+                    return new CommentNotFoundException("Comment not found");
+                });
+
+        final Map<String, List<Comment>> repliesByParent =
+                indexReplies(commentRepository.findByItemIdOrderByCreatedAtAscIdAsc(parent.getItemId()));
+
+        return buildLevel(repliesByParent.getOrDefault(commentId, List.of()), after,
+                repliesByParent, 1, normalizeDepth(maxDepth), CursorUtils.normalizeLimit(maxChildren));
+    }
+
+    /**
+     * Groups comments by their parent comment ID, keeping the order of the input.
+     * Top-level comments, and replies whose parent no longer exists, are grouped under the null key.
+     */
+    private Map<String, List<Comment>> indexReplies(List<Comment> comments) {
+        final Map<String, Comment> byId = new HashMap<>(comments.size() * 2);
+        for (Comment comment : comments) {
+            byId.put(comment.getId(), comment);
         }
+
+        final Map<String, List<Comment>> repliesByParent = new HashMap<>();
+        for (Comment comment : comments) {
+            final String parentId = byId.containsKey(comment.getParentCommentId()) ? comment.getParentCommentId() : null;
+            repliesByParent.computeIfAbsent(parentId, key -> new ArrayList<>()).add(comment);
+        }
+        return repliesByParent;
     }
 
     /**
-     * Retrieves a list of comments for a given Post ID.
-     * @param itemId The ID of the Post to fetch comments for.
-     * @return A list of Comment DTOs.
+     * Builds one level of the tree: up to maxChildren siblings after the cursor, each with its own replies.
      */
-    public List<CommentDto> listCommentsByPostId(String itemId) {
-        log.debug("Listing comments for Post ID: {}", itemId);
+    private PageDto<CommentNodeDto> buildLevel(List<Comment> siblings, CursorUtils.Keyset after,
+                                               Map<String, List<Comment>> repliesByParent,
+                                               int depth, int maxDepth, int maxChildren) {
+        final int from = after == null ? 0 : firstIndexAfter(siblings, after);
+        final int to = Math.min(siblings.size(), from + maxChildren);
 
-        List<CommentDto> comments = commentRepository.findByItemId(itemId).stream()
-                .map(comment -> mapper.map(comment, CommentDto.class))
-                .collect(Collectors.toList());
+        final List<CommentNodeDto> nodes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            nodes.add(toNode(siblings.get(i), repliesByParent, depth, maxDepth, maxChildren));
+        }
+
+        String nextCursor = null;
+        if (to < siblings.size()) {
+            final Comment last = siblings.get(to - 1);
+            nextCursor = CursorUtils.encode(last.getCreatedAt(), last.getId());
+        }
+        return new PageDto<>(nodes, nextCursor);
+    }
+
+    private CommentNodeDto toNode(Comment comment, Map<String, List<Comment>> repliesByParent,
+                                  int depth, int maxDepth, int maxChildren) {
+        final CommentNodeDto node = new CommentNodeDto();
+        node.setId(comment.getId());
+        node.setItemId(comment.getItemId());
+        node.setContent(comment.getContent());
+        node.setUsername(comment.getUsername());
+        node.setParentCommentId(comment.getParentCommentId());
+        node.setCreatedAt(comment.getCreatedAt() != null ? comment.getCreatedAt().toString() : null);
+
+        final List<Comment> replies = repliesByParent.getOrDefault(comment.getId(), List.of());
+        node.setReplyCount(replies.size());
+        if (replies.isEmpty()) {
+            return node;
+        }
+
+        if (depth >= maxDepth) {
+            // Too deep: the client continues from the first reply
+            node.setHasMoreReplies(true);
+            return node;
+        }
+
+        final PageDto<CommentNodeDto> repliesPage =
+                buildLevel(replies, null, repliesByParent, depth + 1, maxDepth, maxChildren);
+        node.setReplies(repliesPage.getItems());
+        node.setHasMoreReplies(repliesPage.getNextCursor() != null);
+        node.setRepliesCursor(repliesPage.getNextCursor());
+        return node;
+    }
+
+    /**
+     * Finds the position of the first sibling ordered after the given key.
+     * Siblings are ordered by (createdAt, id) ascending, so a binary search is enough.
+     */
+    private int firstIndexAfter(List<Comment> siblings, CursorUtils.Keyset after) {
+        int low = 0;
+        int high = siblings.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final Comment comment = siblings.get(mid);
+            final int cmp = comment.getCreatedAt().compareTo(after.getCreatedAt());
+            if (cmp < 0 || (cmp == 0 && comment.getId().compareTo(after.getId()) <= 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 
-        log.debug("Found {} comments for Post ID: {}", comments.size(), itemId);
-        return comments;
+    private int normalizeDepth(Integer maxDepth) {
+        if (maxDepth == null || maxDepth <= 0) {
+            return DEFAULT_TREE_DEPTH;
+        }
+        return Math.min(maxDepth, MAX_TREE_DEPTH);
     }
 
     /**
@@ -129,16 +271,29 @@ public class CommentService {
     }
 
     /**
-     * Retrieves a list of comments made by a specific user.
+     * Retrieves a page of comments made by a specific user, newest comments first.
      * @param username The username of the user whose comments are to be fetched.
-     * @return A list of Comment DTOs representing the user's comments.
+     * @param limit The maximum number of comments to return, may be null.
+     * @param cursor The cursor of the last comment of the previous page, may be null.
+     * @return A page of Comment DTOs representing the user's comments.
      */
-    public List<CommentDto> getCommentForUserByUserId(String username) {
-        // Fetch comments by the provided username from the repository
-        return commentRepository.findByUsername(username).stream()
-                // Map each Comment entity to a Comment DTO
-                .map(comment -> mapper.map(comment, CommentDto.class))
-                .toList();  // Collect the mapped Comment DTOs into a list
+    public PageDto<CommentDto> getCommentForUserByUserId(String username, Integer limit, String cursor) {
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+
+        // Fetch one extra comment to find out whether a next page exists
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+        final List<Comment> comments = after == null
+                ? commentRepository.findByUsernameOrderByCreatedAtDescIdDesc(username, pageable)
+                : commentRepository.findPageByUsernameAfter(username, after.getCreatedAt(), after.getId(), pageable);
+
+        return toPage(comments, pageSize);
+    }
+
+    private PageDto<CommentDto> toPage(List<Comment> comments, int pageSize) {
+        return CursorUtils.toPage(comments, pageSize,
+                comment -> mapper.map(comment, CommentDto.class),
+                comment -> CursorUtils.encode(comment.getCreatedAt(), comment.getId()));
     }
 
 }
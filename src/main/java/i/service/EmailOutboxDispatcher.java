@@ -0,0 +1,167 @@
+package i.service;
+
+import i.model.EmailOutboxEntry;
+import i.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends the emails queued in the outbox in the background.
+ * Every poll claims a batch of due entries and sends them with bounded concurrency.
+ * Failed deliveries are retried with exponential backoff until the maximum number of attempts is reached.
+ * Outcomes are counted in the "email.outbox.deliveries" metric, tagged by resulting status.
+ */
+@Slf4j
+@Component
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final ExecutorService executor;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimTimeout;
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    public EmailOutboxDispatcher(
+            EmailOutboxRepository outboxRepository,
+            EmailService emailService,
+            MeterRegistry meterRegistry,
+            @Value("${mail.outbox.batch-size:50}") int batchSize,
+            @Value("${mail.outbox.concurrency:4}") int concurrency,
+            @Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${mail.outbox.max-backoff:1h}") Duration maxBackoff,
+            @Value("${mail.outbox.claim-timeout:5m}") Duration claimTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.claimTimeout = claimTimeout;
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sentCounter = deliveries(meterRegistry, "sent");
+        this.retriedCounter = deliveries(meterRegistry, "retried");
+        this.failedCounter = deliveries(meterRegistry, "failed");
+    }
+
+    /**
+     * Claims the entries due for delivery, up to the batch size, and sends them.
+     * Waits for the whole batch, so that polls never overlap.
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:5000}")
+    public void dispatch() {
+        final List<Future<?>> deliveries = new ArrayList<>();
+        try {
+            final LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < batchSize; i++) {
+                final Optional<EmailOutboxEntry> entry = outboxRepository.claimNext(now, now.plus(claimTimeout));
+                if (entry.isEmpty()) {
+                    break;
+                }
+                deliveries.add(executor.submit(() -> send(entry.get())));
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to claim email outbox entries", e);
+        }
+
+        for (Future<?> delivery : deliveries) {
+            try {
+                delivery.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Email outbox delivery failed unexpectedly", e.getCause());
+            }
+        }
+        if (!deliveries.isEmpty()) {
+            log.debug("Processed {} email outbox entries", deliveries.size());
+        }
+    }
+
+    /**
+     * Sends one claimed entry and records the outcome.
+     *
+     * @param entry the claimed entry, its attempts already include this one
+     */
+    void send(EmailOutboxEntry entry) {
+        if (entry.getAttempts() > maxAttempts) {
+            // The entry was claimed repeatedly without an outcome
+            outboxRepository.markFailed(entry.getId(), "Delivery did not complete after " + maxAttempts + " attempts");
+            failedCounter.increment();
+            return;
+        }
+
+        try {
+            emailService.deliver(entry.getRecipient(), entry.getSubject(), entry.getText());
+            outboxRepository.markSent(entry.getId(), LocalDateTime.now());
+            sentCounter.increment();
+        } catch (Exception e) {
+            if (entry.getAttempts() >= maxAttempts) {
+                log.error("Giving up email {} to {} after {} attempts", entry.getId(), entry.getRecipient(), entry.getAttempts(), e);
+                outboxRepository.markFailed(entry.getId(), e.getMessage());
+                failedCounter.increment();
+            } else {
+                final LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(entry.getAttempts()));
+                log.warn("Email {} to {} failed on attempt {}, retrying at {}: {}",
+                        entry.getId(), entry.getRecipient(), entry.getAttempts(), nextAttemptAt, e.getMessage());
+                outboxRepository.markRetry(entry.getId(), nextAttemptAt, e.getMessage());
+                retriedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * Computes the delay before the next attempt: the initial backoff doubled after every failed attempt,
+     * capped at the maximum backoff, plus up to 20% of random jitter.
+     *
+     * @param attempts the number of attempts made so far
+     * @return the delay before the next attempt
+     */
+    Duration backoff(int attempts) {
+        final long initialMillis = initialBackoff.toMillis();
+        final int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        final long millis = Math.min(initialMillis << doublings, maxBackoff.toMillis());
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Counter deliveries(MeterRegistry meterRegistry, String status) {
+        return Counter.builder("email.outbox.deliveries")
+                .description("Email outbox delivery attempts by resulting status")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+}
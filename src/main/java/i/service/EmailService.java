@@ -1,8 +1,11 @@
 package i.service;
 
+import i.model.EmailOutboxEntry;
+import i.repository.EmailOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
@@ -13,6 +16,7 @@ import org.springframework.stereotype.Service;
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final EmailOutboxRepository outboxRepository;
 
     // Inject the email address from configuration
     @Value("${spring.mail.username}")
@@ -33,6 +37,22 @@ public class EmailService {
      * @param text    the content of the email
      */
     public void sendEmail(String to, String subject, String text) {
+        try {
+            deliver(to, subject, text);
+        } catch (Exception e) {
+            log.error("Failed to send email to: {}", to, e);
+        }
+    }
+
+    /**
+     * Sends an email with the specified parameters, reporting failures to the caller.
+     *
+     * @param to      the recipient's email address
+     * @param subject the subject of the email
+     * @param text    the content of the email
+     * @throws MailException if the email could not be sent
+     */
+    public void deliver(String to, String subject, String text) throws MailException {
         log.debug("Preparing to send email to: {}", to);
 
         SimpleMailMessage message = new SimpleMailMessage();
@@ -41,21 +61,33 @@ public class EmailService {
         message.setText(text);
         message.setFrom(senderEmail);
 
-        try {
-            mailSender.send(message);
-            log.info("Email sent successfully to: {}", to);
-        } catch (Exception e) {
-            log.error("Failed to send email to: {}", to, e);
-        }
+        mailSender.send(message);
+        log.info("Email sent successfully to: {}", to);
+    }
+
+    /**
+     * Queues an email in the outbox; it is sent in the background by the outbox dispatcher.
+     *
+     * @param to      the recipient's email address
+     * @param subject the subject of the email
+     * @param text    the content of the email
+     */
+    public void queueEmail(String to, String subject, String text) {
+        EmailOutboxEntry entry = new EmailOutboxEntry();
+        entry.setRecipient(to);
+        entry.setSubject(subject);
+        entry.setText(text);
+        outboxRepository.insert(entry);
+        log.debug("Email to {} queued with ID: {}", to, entry.getId());
     }
 
     /**
-     * Sends a confirmation email with a confirmation token.
+     * Queues a confirmation email with a confirmation token.
      *
      * @param email             the recipient's email address
      * @param confirmationToken the confirmation token to be included in the email
      */
-    public void sendConfirmationEmail(String email, String confirmationToken) {
+    public void queueConfirmationEmail(String email, String confirmationToken) {
         log.debug("Generating confirmation email for: {}", email);
 
         // Generate confirmation URL using the injected template
@@ -64,9 +96,9 @@ public class EmailService {
         // Generate the email content
         final String text = CONFIRMATION_EMAIL_TEXT_TEMPLATE + confirmationUrl;
 
-        // Use the generic email-sending method
-        sendEmail(email, CONFIRMATION_EMAIL_SUBJECT, text);
+        // Queue the email; registration does not wait for the mail server
+        queueEmail(email, CONFIRMATION_EMAIL_SUBJECT, text);
 
-        log.info("Confirmation email sent to: {}", email);
+        log.info("Confirmation email queued for: {}", email);
     }
 }
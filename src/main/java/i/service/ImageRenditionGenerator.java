@@ -0,0 +1,293 @@
+package i.service;
+
+import i.fileStorageClient.FileStorage;
+import i.model.ImageRendition;
+import i.repository.PostRepository;
+import i.utils.MediaTypeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates downscaled copies (renditions) of the images of posts, so that feed clients can fetch
+ * the smallest image that fits instead of the original. Images are decoded and scaled with ImageIO
+ * on a small pool with a bounded queue, since scaling is CPU and memory heavy; the renditions are
+ * stored through the file storage and recorded on the post. Images are never upscaled, so an image
+ * narrower than a configured width has no rendition of that width.
+ * Images of an accepted format that ImageIO has no reader for, such as WebP, are skipped and keep
+ * only their original.
+ * Outcomes are counted in the "posts.image-renditions" metric, tagged by resulting status.
+ */
+@Slf4j
+@Component
+public class ImageRenditionGenerator {
+
+    private final FileStorage fileStorage;
+    private final PostRepository postRepository;
+    private final ThreadPoolExecutor executor;
+
+    private final List<Integer> widths;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    private final Counter generatedCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+
+    public ImageRenditionGenerator(
+            FileStorage fileStorage,
+            PostRepository postRepository,
+            MeterRegistry meterRegistry,
+            @Value("${posts.image-renditions.widths:160,480,1080}") List<Integer> widths,
+            @Value("${posts.image-renditions.jpeg-quality:0.85}") float jpegQuality,
+            @Value("${posts.image-renditions.max-pixels:40000000}") long maxPixels,
+            @Value("${posts.image-renditions.queue-capacity:50}") int queueCapacity,
+            @Value("${posts.image-renditions.concurrency:2}") int concurrency) {
+        this.fileStorage = fileStorage;
+        this.postRepository = postRepository;
+        this.widths = widths.stream().sorted().distinct().toList();
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "post-image-renditions-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        meterRegistry.gaugeCollectionSize("posts.image-renditions.queued", Tags.empty(), executor.getQueue());
+        this.generatedCounter = renditions(meterRegistry, "generated");
+        this.skippedCounter = renditions(meterRegistry, "skipped");
+        this.failedCounter = renditions(meterRegistry, "failed");
+        this.rejectedCounter = renditions(meterRegistry, "rejected");
+    }
+
+    /**
+     * Queues the generation of the renditions of the image of a post.
+     *
+     * @param postId the ID of the post
+     * @param image  the original image, read when its renditions are generated
+     * @return false if the queue is full; the post then only has its original image
+     */
+    public boolean submit(String postId, Resource image) {
+        return submit(postId, image, () -> {
+        });
+    }
+
+    /**
+     * Queues the generation of the renditions of the image of a post.
+     *
+     * @param postId  the ID of the post
+     * @param image   the original image, read when its renditions are generated
+     * @param release run exactly once when the image is no longer needed, also if the generation is rejected
+     * @return false if the queue is full; the post then only has its original image
+     */
+    public boolean submit(String postId, Resource image, Runnable release) {
+        try {
+            executor.execute(() -> {
+                try {
+                    process(postId, image);
+                } finally {
+                    release.run();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Image rendition queue is full, skipping the renditions of post {}", postId);
+            rejectedCounter.increment();
+            release.run();
+            return false;
+        }
+    }
+
+    /**
+     * Generates and stores the renditions of the image of a post and records them on the post.
+     *
+     * @param postId the ID of the post
+     * @param image  the original image
+     */
+    void process(String postId, Resource image) {
+        try {
+            final List<ImageRendition> renditions = generate(postId, image);
+            postRepository.setRenditions(postId, renditions);
+            generatedCounter.increment();
+            log.info("Generated {} renditions of the image of post {}", renditions.size(), postId);
+        } catch (UnreadableImageException e) {
+            log.info("No reader for the {} image of post {}, skipping its renditions", e.getMediaType(), postId);
+            skippedCounter.increment();
+        } catch (RuntimeException | IOException e) {
+            log.error("Failed to generate the renditions of the image of post {}", postId, e);
+            failedCounter.increment();
+        }
+    }
+
+    /**
+     * Scales an image to every configured width smaller than the image and stores the results.
+     *
+     * @param postId the ID of the post, used to name the files
+     * @param image  the original image
+     * @return the stored renditions, smallest first
+     */
+    List<ImageRendition> generate(String postId, Resource image) throws IOException {
+        final BufferedImage original = decode(image);
+        final boolean alpha = original.getColorModel().hasAlpha();
+
+        final List<ImageRendition> renditions = new ArrayList<>();
+        for (int width : widths) {
+            if (width >= original.getWidth()) {
+                break;
+            }
+            final BufferedImage scaled = scale(original, width);
+            final String filename = postId + "-" + width + (alpha ? ".png" : ".jpg");
+            final String url = fileStorage.uploadImage(encode(scaled, alpha, filename)).block();
+            renditions.add(new ImageRendition(scaled.getWidth(), scaled.getHeight(), url));
+        }
+        return renditions;
+    }
+
+    /**
+     * Scales an image down to a width, keeping its aspect ratio. The image is halved step by step
+     * before the last step: a single bilinear step from a much larger image skips most source pixels.
+     *
+     * @param source the image to scale
+     * @param width  the target width, smaller than the width of the image
+     * @return the scaled image
+     */
+    static BufferedImage scale(BufferedImage source, int width) {
+        final int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        final int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+
+        BufferedImage current = source;
+        do {
+            final int nextWidth = Math.max(width, current.getWidth() / 2);
+            final int nextHeight = nextWidth == width ? height : Math.max(height, current.getHeight() / 2);
+            final BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            final Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() > width);
+        return current;
+    }
+
+    /**
+     * Decodes an image, refusing images whose pixel count exceeds the limit before allocating them.
+     *
+     * @throws UnreadableImageException if the image is of an accepted format that ImageIO cannot read
+     */
+    private BufferedImage decode(Resource image) throws IOException {
+        try (InputStream in = image.getInputStream();
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                final byte[] header = new byte[MediaTypeUtils.SIGNATURE_LENGTH];
+                final int length = Math.max(imageIn.read(header), 0);
+                final MediaType mediaType = MediaTypeUtils.detectImage(new ByteArrayInputStream(header, 0, length))
+                        .orElseThrow(() -> new IllegalArgumentException("Unsupported image format"));
+                throw new UnreadableImageException(mediaType);
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                final long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException("Image has " + pixels + " pixels, more than " + maxPixels);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Encodes a rendition as JPEG, or as PNG if it has transparency, which JPEG cannot hold.
+     */
+    private Resource encode(BufferedImage image, boolean alpha, String filename) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", out);
+        } else {
+            final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+                final ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                writer.setOutput(imageOut);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+        }
+        return new ByteArrayResource(out.toByteArray()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thrown for an image that was accepted on upload but that no installed ImageIO reader decodes.
+     * This is not a failure: the post simply keeps only its original image.
+     */
+    static class UnreadableImageException extends IOException {
+        private final MediaType mediaType;
+
+        UnreadableImageException(MediaType mediaType) {
+            super("No image reader for " + mediaType);
+            this.mediaType = mediaType;
+        }
+
+        MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private static Counter renditions(MeterRegistry meterRegistry, String status) {
+        return Counter.builder("posts.image-renditions")
+                .description("Generation of post image renditions by resulting status")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+}
@@ -1,16 +1,29 @@
 package i.service;
 
+import i.dto.ConversationDto;
 import i.dto.MessageDto;
+import i.dto.PageDto;
+import i.dto.UnreadCountDto;
+import i.event.MessageSentEvent;
+import i.event.MessagesReadEvent;
 import i.exception.MessageAccessDeniedException;
+import i.model.Conversation;
 import i.model.Message;
+import i.repository.ConversationRepository;
 import i.repository.MessageRepository;
-import i.repository.UserRepository;
+import i.repository.UnreadCounterRepository;
+import i.search.UserExistenceFilter;
+import i.utils.CursorUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -18,8 +31,11 @@ import java.util.List;
 @Slf4j
 public class MessageService {
     private final MessageRepository repository;
-    private final UserRepository userRepository;
+    private final UserExistenceFilter userExistenceFilter;
+    private final ConversationRepository conversationRepository;
+    private final UnreadCounterRepository unreadCounterRepository;
     private final ModelMapper modelMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Sends a message from one user to another.
@@ -33,13 +49,13 @@ public class MessageService {
         log.debug("Sending message from {} to {}", sender, recipient);
 
         // Ensure the recipient exists
-        if (!userRepository.existsByUsername(recipient)) {
+        if (!userExistenceFilter.exists(recipient)) {
             log.error("Recipient {} not found", recipient);
             throw new UsernameNotFoundException(String.format("Recipient %s not found", recipient));
         }
 
         // Ensure the sender exists
-        if (!userRepository.existsByUsername(sender)) {
+        if (!userExistenceFilter.exists(sender)) {
             log.error("Sender {} not found", sender);
             throw new UsernameNotFoundException(String.format("Sender %s not found", sender));
         }
@@ -53,56 +69,166 @@ public class MessageService {
         // Save the message to the repository and get the saved message
         Message sentMessage = repository.save(message);
 
+        // Update the conversation summary of both users, and the unread counter of the recipient. The summary takes
+        // two writes on purpose: the counters are upserted, then the last message is replaced only if this one is newer,
+        // so that concurrent sends never leave an older message as the last one
+        conversationRepository.recordMessage(sentMessage);
+        if (!sender.equals(recipient)) {
+            unreadCounterRepository.increment(recipient);
+        }
+
         log.info("Message sent successfully from {} to {}", sender, recipient);
 
+        // Push the message to the connected users; delivery happens in the background
+        final MessageDto messageDto = modelMapper.map(sentMessage, MessageDto.class);
+        eventPublisher.publishEvent(new MessageSentEvent(messageDto));
+
         // Return the message details as a MessageResponseDto
-        return modelMapper.map(sentMessage, MessageDto.class);
+        return messageDto;
     }
 
     /**
-     * Retrieves all messages sent by a specific sender.
+     * Retrieves one page of the messages sent by a specific sender, newest messages first.
      *
      * @param sender The sender whose messages are to be retrieved.
-     * @return A list of messages sent by the specified sender.
+     * @param limit  The maximum number of messages, defaults to {@link CursorUtils#DEFAULT_PAGE_SIZE}.
+     * @param cursor The cursor returned with the previous page, null for the first page.
+     * @return The page of messages sent by the specified sender and the cursor of the next page.
      */
-    public List<MessageDto> getMessagesBySender(String sender) {
-        log.debug("Retrieving messages sent by {}", sender);
+    public PageDto<MessageDto> getMessagesBySender(String sender, Integer limit, String cursor) {
+        log.debug("Retrieving messages sent by {}, cursor: {}", sender, cursor);
 
         // Ensure that the sender exists before retrieving their messages
-        if (!userRepository.existsByUsername(sender)) {
+        if (!userExistenceFilter.exists(sender)) {
             log.error("Sender {} not found", sender);
             throw new UsernameNotFoundException(String.format("Sender %s not found", sender));
         }
 
-        List<MessageDto> messages = repository.findBySender(sender).stream()
-                .map(message -> modelMapper.map(message, MessageDto.class))
-                .toList();
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
 
-        log.info("Retrieved {} messages sent by {}", messages.size(), sender);
-        return messages;
+        // Fetch one extra message to find out whether a next page exists
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+        final List<Message> messages = after == null
+                ? repository.findBySenderOrderByCreatedAtDescIdDesc(sender, pageable)
+                : repository.findPageBySenderAfter(sender, after.getCreatedAt(), after.getId(), pageable);
+
+        final PageDto<MessageDto> page = toPage(messages, pageSize);
+        log.info("Retrieved {} messages sent by {}", page.getItems().size(), sender);
+        return page;
     }
 
     /**
-     * Retrieves all messages received by a specific recipient.
+     * Retrieves one page of the messages received by a specific recipient, newest messages first.
      *
      * @param recipient The recipient whose messages are to be retrieved.
-     * @return A list of messages received by the specified recipient.
+     * @param limit     The maximum number of messages, defaults to {@link CursorUtils#DEFAULT_PAGE_SIZE}.
+     * @param cursor    The cursor returned with the previous page, null for the first page.
+     * @return The page of messages received by the specified recipient and the cursor of the next page.
      */
-    public List<MessageDto> getMessagesByRecipient(String recipient) {
-        log.debug("Retrieving messages received by {}", recipient);
+    public PageDto<MessageDto> getMessagesByRecipient(String recipient, Integer limit, String cursor) {
+        log.debug("Retrieving messages received by {}, cursor: {}", recipient, cursor);
 
         // Ensure that the recipient exists before retrieving their messages
-        if (!userRepository.existsByUsername(recipient)) {
+        if (!userExistenceFilter.exists(recipient)) {
             log.error("Recipient {} not found", recipient);
             throw new UsernameNotFoundException(String.format("Recipient %s not found", recipient));
         }
 
-        List<MessageDto> messages = repository.findByRecipient(recipient).stream()
-                .map(message -> modelMapper.map(message, MessageDto.class))
-                .toList();
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+
+        // Fetch one extra message to find out whether a next page exists
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+        final List<Message> messages = after == null
+                ? repository.findByRecipientOrderByCreatedAtDescIdDesc(recipient, pageable)
+                : repository.findPageByRecipientAfter(recipient, after.getCreatedAt(), after.getId(), pageable);
+
+        final PageDto<MessageDto> page = toPage(messages, pageSize);
+        log.info("Retrieved {} messages received by {}", page.getItems().size(), recipient);
+        return page;
+    }
+
+    /**
+     * Retrieves one page of the conversations of a user, most recently active first.
+     *
+     * @param username The user whose conversations are to be retrieved.
+     * @param limit    The maximum number of conversations, defaults to {@link CursorUtils#DEFAULT_PAGE_SIZE}.
+     * @param cursor   The cursor returned with the previous page, null for the first page.
+     * @return The page of conversations and the cursor of the next page.
+     */
+    public PageDto<ConversationDto> getConversations(String username, Integer limit, String cursor) {
+        log.debug("Retrieving conversations of {}, cursor: {}", username, cursor);
+
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+
+        // Fetch one extra conversation to find out whether a next page exists
+        final List<Conversation> conversations = conversationRepository.findPage(username, after, pageSize + 1);
+
+        final PageDto<ConversationDto> page = CursorUtils.toPage(conversations, pageSize,
+                conversation -> new ConversationDto(
+                        conversation.counterpartOf(username),
+                        conversation.getLastMessageId(),
+                        conversation.getLastSender(),
+                        conversation.getLastMessagePreview(),
+                        conversation.getLastMessageAt(),
+                        conversation.unreadCountOf(username)),
+                conversation -> CursorUtils.encode(conversation.getLastMessageAt(), conversation.getId()));
+        log.info("Retrieved {} conversations of {}", page.getItems().size(), username);
+        return page;
+    }
+
+    /**
+     * Marks all messages of a conversation as read by a user.
+     *
+     * @param username    The user who read the conversation.
+     * @param counterpart The other participant of the conversation.
+     */
+    public void markConversationRead(String username, String counterpart) {
+        log.debug("Marking conversation of {} with {} as read", username, counterpart);
+
+        final LocalDateTime readAt = LocalDateTime.now();
+        final long count = repository.markAllRead(username, counterpart, readAt);
+        onMessagesRead(username, counterpart, null, count, readAt);
+    }
+
+    /**
+     * Marks a received message as read, along with all earlier unread messages of the same sender,
+     * in a single update of the messages collection.
+     *
+     * @param username The user who read the messages.
+     * @param upToId   The ID of the last message read.
+     * @return The number of messages the user has still not read.
+     */
+    public UnreadCountDto markReadUpTo(String username, String upToId) {
+        log.debug("Marking messages of {} as read up to {}", username, upToId);
+
+        final Message upTo = repository.findById(upToId)
+                .orElseThrow(() -> {
+                    log.error("Message with ID: {} not found", upToId);
+                    return new RuntimeException("Message not found");
+                });
+        if (!upTo.getRecipient().equals(username)) {
+            log.error("User {} is not the recipient of message ID: {}", username, upToId);
+            throw new MessageAccessDeniedException(
+                    String.format("Recipient of the message does not match with user %s", username));
+        }
+
+        final LocalDateTime readAt = LocalDateTime.now();
+        final long count = repository.markReadUpTo(username, upTo.getSender(), upTo.getCreatedAt(), upTo.getId(), readAt);
+        onMessagesRead(username, upTo.getSender(), upTo.getId(), count, readAt);
+        return getUnreadCount(username);
+    }
 
-        log.info("Retrieved {} messages received by {}", messages.size(), recipient);
-        return messages;
+    /**
+     * Returns the number of received messages a user has not read yet, from a per-user counter.
+     *
+     * @param username The user.
+     * @return The number of unread messages.
+     */
+    public UnreadCountDto getUnreadCount(String username) {
+        return new UnreadCountDto(unreadCounterRepository.count(username));
     }
 
     /**
@@ -132,4 +258,21 @@ public class MessageService {
                     return new RuntimeException("Message not found");
                 });
     }
+
+    private PageDto<MessageDto> toPage(List<Message> messages, int pageSize) {
+        return CursorUtils.toPage(messages, pageSize,
+                message -> modelMapper.map(message, MessageDto.class),
+                message -> CursorUtils.encode(message.getCreatedAt(), message.getId()));
+    }
+
+    // Updates the unread counters and sends a read receipt to the sender
+    private void onMessagesRead(String reader, String sender, String upToId, long count, LocalDateTime readAt) {
+        log.info("User {} read {} messages of {}", reader, count, sender);
+        if (count == 0) {
+            return;
+        }
+        conversationRepository.decrementUnread(reader, sender, count);
+        unreadCounterRepository.decrement(reader, count);
+        eventPublisher.publishEvent(new MessagesReadEvent(reader, sender, upToId, readAt));
+    }
 }
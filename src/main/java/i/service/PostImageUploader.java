@@ -0,0 +1,148 @@
+package i.service;
+
+import i.event.PostImageProcessedEvent;
+import i.fileStorageClient.FileStorage;
+import i.model.ImageStatus;
+import i.repository.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads the images of new posts to the file storage in the background, so that creating a post
+ * does not wait for the storage. Uploads wait in a bounded queue and run with bounded concurrency;
+ * a failed upload is retried with exponential backoff. The outcome is written to the post atomically
+ * and published as a {@link PostImageProcessedEvent}; the renditions of an uploaded image are generated next.
+ * Outcomes are counted in the "posts.image-uploads" metric, tagged by resulting status.
+ */
+@Slf4j
+@Component
+public class PostImageUploader {
+
+    private final FileStorage fileStorage;
+    private final PostRepository postRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageRenditionGenerator renditionGenerator;
+    private final ThreadPoolExecutor executor;
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+
+    private final Counter uploadedCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+
+    public PostImageUploader(
+            FileStorage fileStorage,
+            PostRepository postRepository,
+            ApplicationEventPublisher eventPublisher,
+            ImageRenditionGenerator renditionGenerator,
+            MeterRegistry meterRegistry,
+            @Value("${posts.image-upload.queue-capacity:100}") int queueCapacity,
+            @Value("${posts.image-upload.concurrency:4}") int concurrency,
+            @Value("${posts.image-upload.max-attempts:3}") int maxAttempts,
+            @Value("${posts.image-upload.initial-backoff:2s}") Duration initialBackoff) {
+        this.fileStorage = fileStorage;
+        this.postRepository = postRepository;
+        this.eventPublisher = eventPublisher;
+        this.renditionGenerator = renditionGenerator;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "post-image-upload");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        meterRegistry.gaugeCollectionSize("posts.image-uploads.queued", Tags.empty(), executor.getQueue());
+        this.uploadedCounter = uploads(meterRegistry, "uploaded");
+        this.retriedCounter = uploads(meterRegistry, "retried");
+        this.failedCounter = uploads(meterRegistry, "failed");
+        this.rejectedCounter = uploads(meterRegistry, "rejected");
+    }
+
+    /**
+     * Queues the upload of the image of a saved post whose image status is pending.
+     *
+     * @param postId   the ID of the post
+     * @param username the author of the post
+     * @param image    the image content, kept until the upload and the renditions are done
+     * @param release  run exactly once when the image content is no longer needed, also if the upload is rejected
+     * @return false if the queue is full and the upload was not queued
+     */
+    public boolean submit(String postId, String username, Resource image, Runnable release) {
+        try {
+            executor.execute(() -> upload(postId, username, image, release));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Image upload queue is full, rejecting the image of post {}", postId);
+            rejectedCounter.increment();
+            release.run();
+            return false;
+        }
+    }
+
+    /**
+     * Uploads the image of a post, retrying failed attempts, and records the outcome on the post.
+     * The renditions of an uploaded image are generated next, and the image is released once they are.
+     *
+     * @param postId   the ID of the post
+     * @param username the author of the post
+     * @param image    the image content
+     * @param release  run once the image content is no longer needed
+     */
+    void upload(String postId, String username, Resource image, Runnable release) {
+        final String imageUrl;
+        try {
+            imageUrl = fileStorage.uploadImage(image)
+                    .retryWhen(Retry.backoff(maxAttempts - 1, initialBackoff)
+                            // An invalid image fails the same way on every attempt
+                            .filter(e -> !(e instanceof IllegalArgumentException))
+                            .doBeforeRetry(signal -> {
+                                log.warn("Image upload of post {} failed on attempt {}, retrying: {}",
+                                        postId, signal.totalRetries() + 1, signal.failure().getMessage());
+                                retriedCounter.increment();
+                            }))
+                    .block();
+        } catch (RuntimeException e) {
+            log.error("Giving up the image upload of post {}", postId, e);
+            postRepository.markImageFailed(postId);
+            failedCounter.increment();
+            eventPublisher.publishEvent(new PostImageProcessedEvent(postId, username, ImageStatus.FAILED, null));
+            release.run();
+            return;
+        }
+
+        postRepository.markImageReady(postId, imageUrl);
+        uploadedCounter.increment();
+        log.info("Image of post {} uploaded with URL: {}", postId, imageUrl);
+        eventPublisher.publishEvent(new PostImageProcessedEvent(postId, username, ImageStatus.READY, imageUrl));
+        renditionGenerator.submit(postId, image, release);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Counter uploads(MeterRegistry meterRegistry, String status) {
+        return Counter.builder("posts.image-uploads")
+                .description("Background post image uploads by resulting status")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+}
@@ -1,20 +1,38 @@
 package i.service;
 
+import i.dto.PageDto;
 import i.dto.PostCreateResponseDto;
 import i.dto.PostDto;
 import i.dto.PostFileUrlDto;
+import i.exception.UnsupportedImageException;
+import i.model.ImageRendition;
+import i.model.ImageStatus;
 import i.model.Post;
 import i.repository.PostRepository;
 import i.fileStorageClient.FileStorage;
+import i.fileStorageClient.ImageCache;
+import i.utils.CursorUtils;
+import i.utils.MediaTypeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service class for managing posts.
@@ -27,9 +45,17 @@ public class PostService {
     private final PostRepository repository;
     private final ModelMapper mapper;
     private final FileStorage fileStorage;
+    private final PostImageUploader imageUploader;
+    private final ImageCache imageCache;
+    private final ImageRenditionGenerator renditionGenerator;
+
+    @Value("${posts.image-upload.async:true}")
+    private boolean asyncImageUpload;  // Upload images in the background instead of during the request
 
     /**
      * Creates a new post, optionally with an image.
+     * In asynchronous mode the post is saved right away with a pending image status and the image
+     * is uploaded in the background; the post gets its image URL once the upload completes.
      *
      * @param title    the title of the post
      * @param content  the content of the post
@@ -45,41 +71,83 @@ public class PostService {
         post.setContent(content);
         post.setUsername(username);
 
-        // Upload image if provided and set the image URL
-        if (image != null) {
+        Resource imageContent = null;
+        Runnable releaseImage = null;
+        if (image != null && asyncImageUpload) {
+            // Move the image to a file of its own now, the temporary file of the upload is deleted when the request completes
+            final Path spooledImage = spoolImage(image);
+            imageContent = namedResource(spooledImage, image.getOriginalFilename());
+            releaseImage = () -> deleteQuietly(spooledImage);
+            post.setImageStatus(ImageStatus.PENDING);
+        } else if (image != null) {
+            // Upload image and set the image URL
             log.debug("Uploading image for post: {}", title);
+            requireImage(image);
             String imageUrl = fileStorage.uploadImage(image).block();
             post.setImageUrl(imageUrl);
+            post.setImageStatus(ImageStatus.READY);
             log.info("Image uploaded successfully with URL: {}", imageUrl);
         }
 
         // Save the post to the database
-        post = repository.save(post);
+        try {
+            post = repository.save(post);
+        } catch (RuntimeException e) {
+            if (releaseImage != null) {
+                releaseImage.run();
+            }
+            throw e;
+        }
         log.info("Post created successfully with ID: {}", post.getId());
 
+        // Queue the upload once the post exists, so that its outcome can be written to the post
+        if (imageContent != null && !imageUploader.submit(post.getId(), username, imageContent, releaseImage)) {
+            repository.markImageFailed(post.getId());
+            post.setImageStatus(ImageStatus.FAILED);
+        } else if (image != null && !asyncImageUpload) {
+            submitRenditions(post.getId(), post.getImageUrl());
+        }
+
         // Map and return the response DTO
         return mapper.map(post, PostCreateResponseDto.class);
     }
 
     /**
-     * Retrieves a list of all posts, optionally filtered by username, sorted by creation date (descending).
+     * Retrieves one page of posts, optionally filtered by username, sorted by creation date (descending).
+     * Pages are read with keyset pagination on (createdAt, id), so the cost of a page does not
+     * depend on how many posts exist or how deep the client has scrolled.
      *
      * @param username the username to filter posts by (optional)
-     * @return a list of PostDto objects
+     * @param limit    the maximum number of posts in the page (optional)
+     * @param cursor   the cursor returned with the previous page (optional)
+     * @return a page of PostDto objects with the cursor of the next page
      */
-    public List<PostDto> list(String username) {
-        log.debug("Retrieving posts for username: {}", username);
+    public PageDto<PostDto> list(String username, Integer limit, String cursor) {
+        log.debug("Retrieving posts for username: {}, cursor: {}", username, cursor);
 
-        List<Post> posts = username != null ? repository.findByUsername(username) : repository.findAll();
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
 
-        // Sort posts by creation date (descending) and map them to PostDto
-        List<PostDto> postDtos = posts.stream()
-                .sorted(Comparator.comparing(Post::getCreatedAt).reversed())
-                .map(post -> mapper.map(post, PostDto.class))
-                .collect(Collectors.toList());
+        // Fetch one extra post to find out whether a next page exists
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<Post> posts;
+        if (username == null) {
+            posts = after == null
+                    ? repository.findAllByOrderByCreatedAtDescIdDesc(pageable)
+                    : repository.findPageAfter(after.getCreatedAt(), after.getId(), pageable);
+        } else {
+            posts = after == null
+                    ? repository.findByUsernameOrderByCreatedAtDescIdDesc(username, pageable)
+                    : repository.findPageByUsernameAfter(username, after.getCreatedAt(), after.getId(), pageable);
+        }
 
-        log.info("Retrieved {} posts for username: {}", postDtos.size(), username);
-        return postDtos;
+        PageDto<PostDto> page = CursorUtils.toPage(posts, pageSize,
+                post -> mapper.map(post, PostDto.class),
+                post -> CursorUtils.encode(post.getCreatedAt(), post.getId()));
+
+        log.info("Retrieved {} posts for username: {}", page.getItems().size(), username);
+        return page;
     }
 
     /**
@@ -124,4 +192,131 @@ public class PostService {
         log.info("Retrieved image URL for post with ID {}: {}", id, imageUrl);
         return new PostFileUrlDto(imageUrl);
     }
+
+    /**
+     * Retrieves the image of a post as a local file. Images of the local storage are served in place;
+     * other images are fetched once into the on-disk image cache and served from there.
+     * When a width is given, the smallest rendition at least that wide is served instead of the original,
+     * and the original if no rendition is wide enough.
+     *
+     * @param id    the ID of the post
+     * @param width the width the client displays the image at (optional)
+     * @return a future completed with the path of the image file
+     */
+    public CompletableFuture<Path> getImage(String id, Integer width) {
+        log.debug("Retrieving image of post with ID: {}, width: {}", id, width);
+
+        Post post = repository.findById(id)
+                .orElseThrow(() -> {
+                    log.error("Post with ID {} not found", id);
+                    return new RuntimeException("Post not found with ID: " + id);
+                });
+
+        if (post.getImageUrl() == null || post.getImageUrl().isEmpty()) {
+            log.error("Post with ID {} does not have an associated image", id);
+            throw new IllegalArgumentException("Post with ID " + id + " does not have an associated image.");
+        }
+
+        final String imageUrl = width == null ? post.getImageUrl() : post.getRenditions().stream()
+                .filter(rendition -> rendition.getWidth() >= width)
+                .min(Comparator.comparingInt(ImageRendition::getWidth))
+                .map(ImageRendition::getUrl)
+                .orElse(post.getImageUrl());
+
+        return fileStorage.localPath(imageUrl)
+                .map(CompletableFuture::completedFuture)
+                .orElseGet(() -> imageCache.get(imageUrl));
+    }
+
+    /**
+     * Queues the generation of the renditions of a stored image. The image is read back from the storage,
+     * or from the image cache for remote storages, so that the upload is never held in memory.
+     *
+     * @param postId   the ID of the post
+     * @param imageUrl the URL of the stored image
+     */
+    private void submitRenditions(String postId, String imageUrl) {
+        final Optional<Path> localImage = fileStorage.localPath(imageUrl);
+        if (localImage.isPresent()) {
+            renditionGenerator.submit(postId, new FileSystemResource(localImage.get()));
+            return;
+        }
+        imageCache.get(imageUrl).whenComplete((path, e) -> {
+            if (e != null) {
+                log.error("Failed to fetch the image of post {}, skipping its renditions", postId, e);
+            } else {
+                renditionGenerator.submit(postId, new FileSystemResource(path));
+            }
+        });
+    }
+
+    /**
+     * Moves an uploaded image to a temporary file of its own. The image is not held in memory while it
+     * waits for its upload, so the upload queue bounds the number of spooled files rather than the heap.
+     *
+     * @param image the uploaded image
+     * @return the spooled file, to be deleted once the image is no longer needed
+     */
+    private static Path spoolImage(MultipartFile image) {
+        requireImage(image);
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("post-image-", ".upload");
+            image.transferTo(file);
+            return file;
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Failed to spool the image", e);
+        }
+    }
+
+    /**
+     * @param file     a spooled image
+     * @param filename the original file name, kept for the file storage
+     * @return the content of the file under its original name
+     */
+    private static Resource namedResource(Path file, String filename) {
+        return new FileSystemResource(file) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete the spooled image {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that an upload is a non-empty PNG, JPEG, GIF or WebP image before it is stored,
+     * whatever content type the client declared.
+     *
+     * @param image the uploaded image
+     * @throws IllegalArgumentException  if the image is empty
+     * @throws UnsupportedImageException if the content is not an accepted image
+     */
+    private static void requireImage(MultipartFile image) {
+        if (image.isEmpty()) {
+            log.error("The image is empty, cannot upload.");
+            throw new IllegalArgumentException("Image must not be empty");
+        }
+
+        try (InputStream in = image.getInputStream()) {
+            if (MediaTypeUtils.detectImage(in).isEmpty()) {
+                log.error("The upload {} is not an accepted image", image.getOriginalFilename());
+                throw new UnsupportedImageException("Only PNG, JPEG, GIF and WebP images are accepted");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the image", e);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package i.service;
 import i.dto.RoleDto;
 import i.model.Role;
 import i.repository.RoleRepository;
+import i.security.RoleCatalog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -13,9 +14,11 @@ import org.springframework.stereotype.Service;
 public class RoleService {
 
     private final RoleRepository repository;
+    private final RoleCatalog roleCatalog;
 
     /**
      * Saves a role if it doesn't already exist, or retrieves it if it does.
+     * Existing roles are read from the role catalog; new roles are added to it.
      * Logs the creation or retrieval of the role.
      *
      * @param dto The RoleDto containing the role information to be saved or retrieved.
@@ -25,10 +28,12 @@ public class RoleService {
         log.debug("Attempting to save or retrieve role with name: {}", dto.getName());
 
         // Check if the role exists, if not, create and save it
-        Role role = repository.findByName(dto.getName())
+        Role role = roleCatalog.findByName(dto.getName())
                 .orElseGet(() -> {
                     log.info("Role '{}' not found, creating a new role.", dto.getName());
-                    return repository.save(new Role(dto.getName()));
+                    final Role saved = repository.save(new Role(dto.getName()));
+                    roleCatalog.register(saved);
+                    return saved;
                 });
 
         log.info("Role '{}' processed. ID: {}", role.getName(), role.getId());
@@ -1,22 +1,33 @@
 package i.service;
 
+import i.config.IndexInitializer;
+import i.dto.PageDto;
 import i.dto.RoleDto;
 import i.dto.UserCreateRequestDto;
 import i.dto.UserDto;
+import i.dto.UserSummaryDto;
+import i.event.UserRegisteredEvent;
 import i.model.Role;
 import i.model.User;
-import i.repository.RoleRepository;
 import i.repository.UserRepository;
+import i.search.UsernameFuzzyIndex;
+import i.security.RoleCatalog;
+import i.search.UsernameSearchIndex;
+import i.utils.CursorUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.HashSet;
-import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,12 +35,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserService {
     private final UserRepository repository;
-    private final RoleRepository roleRepository;
+    private final RoleCatalog roleCatalog;
     private final ModelMapper modelMapper;
     private final EmailService emailService;
+    private final UsernameSearchIndex usernameSearchIndex;
+    private final UsernameFuzzyIndex usernameFuzzyIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IndexInitializer indexInitializer;
 
     /**
-     * Saves a new user and sends a confirmation email with a token.
+     * Saves a new user and queues a confirmation email with a token.
      *
      * @param userCreateRequestDto The user details for the new account.
      * @return The UserDto containing the saved user's information.
@@ -37,21 +52,32 @@ public class UserService {
     public UserDto save(UserCreateRequestDto userCreateRequestDto) {
         log.debug("Attempting to save a new user: {}", userCreateRequestDto.getUsername());
 
-        // Validate if the username and email are unique
-        validateUniqueUser(userCreateRequestDto.getUsername(), userCreateRequestDto.getEmail());
-
         // Convert the request DTO to a User entity
         User user = convertToEntity(userCreateRequestDto);
 
         final String confirmationToken = UUID.randomUUID().toString();
         user.setConfirmationToken(confirmationToken);
 
-        // Save the user to the repository
-        user = repository.save(user);
+        // Until the unique indexes are verified, e.g. while they are built at startup, check first
+        if (!indexInitializer.isUniqueIndexReady(User.class, User.USERNAME_INDEX)
+                || !indexInitializer.isUniqueIndexReady(User.class, User.EMAIL_INDEX)) {
+            validateUniqueUser(user);
+        }
+
+        // Insert the user; the unique indexes reject a taken username or email
+        try {
+            user = repository.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw toAlreadyExistsException(e, user);
+        }
 
-        // Send confirmation email to the user
-        emailService.sendConfirmationEmail(user.getEmail(), confirmationToken);
-        log.info("Confirmation email sent to user: {}", user.getEmail());
+        // Let the in-memory username indexes pick up the new user
+        eventPublisher.publishEvent(new UserRegisteredEvent(
+                new UserSummaryDto(user.getId(), user.getUsername(), user.getCreatedAt())));
+
+        // Queue the confirmation email, it is sent in the background
+        emailService.queueConfirmationEmail(user.getEmail(), confirmationToken);
+        log.info("Confirmation email queued for user: {}", user.getEmail());
 
         // Return the UserDto with the user's details
         return convertFromEntity(user);
@@ -73,23 +99,38 @@ public class UserService {
     }
 
     /**
-     * Validates that the username and email are unique.
-     * Throws an exception if either already exists in the system.
+     * Validates that the username and email are not taken yet.
+     * This check races with concurrent registrations; it is only a fallback while the unique indexes are missing.
      */
-    private void validateUniqueUser(String username, String email) {
-        log.debug("Validating uniqueness for username: {} and email: {}", username, email);
+    private void validateUniqueUser(User user) {
+        log.warn("Unique indexes of users are not ready, checking username {} and email first", user.getUsername());
 
-        Optional<User> userByUsername = repository.findByUsername(username);
-        if (userByUsername.isPresent()) {
-            log.error("Username already exists: {}", username);
-            throw new IllegalArgumentException("Username already exists: " + username);
+        if (repository.existsByUsername(user.getUsername())) {
+            log.error("Username already exists: {}", user.getUsername());
+            throw new IllegalArgumentException("Username already exists: " + user.getUsername());
+        }
+        if (repository.existsByEmail(user.getEmail())) {
+            log.error("Email already exists: {}", user.getEmail());
+            throw new IllegalArgumentException("Email already exists: " + user.getEmail());
         }
+    }
 
-        Optional<User> userByEmail = repository.findByEmail(email);
-        if (userByEmail.isPresent()) {
-            log.error("Email already exists: {}", email);
-            throw new IllegalArgumentException("Email already exists: " + email);
+    /**
+     * Translates a duplicate key error of the users collection into the matching "already exists" error.
+     * Uniqueness is enforced by the unique indexes on username and email, so concurrent registrations
+     * of the same username or email cannot both succeed.
+     */
+    private RuntimeException toAlreadyExistsException(DuplicateKeyException e, User user) {
+        final String message = String.valueOf(e.getMessage());
+        if (message.contains(User.USERNAME_INDEX)) {
+            log.error("Username already exists: {}", user.getUsername());
+            return new IllegalArgumentException("Username already exists: " + user.getUsername());
+        }
+        if (message.contains(User.EMAIL_INDEX)) {
+            log.error("Email already exists: {}", user.getEmail());
+            return new IllegalArgumentException("Email already exists: " + user.getEmail());
         }
+        return e;
     }
 
     /**
@@ -111,7 +152,7 @@ public class UserService {
     }
 
     /**
-     * Validates the existence of roles from the DTO and returns a Set<Role>.
+     * Validates the existence of roles from the DTO against the role catalog and returns a Set<Role>.
      */
     private Set<Role> getValidatedRoles(Set<RoleDto> roleDtos) {
         log.debug("Validating roles for user creation.");
@@ -120,12 +161,12 @@ public class UserService {
 
         // If roles are not specified, add the default "ROLE_USER"
         if (roleDtos.isEmpty()) {
-            roles.add(roleRepository.findByName("ROLE_USER")
+            roles.add(roleCatalog.findByName("ROLE_USER")
                     .orElseThrow(() -> new RuntimeException("Default role 'ROLE_USER' not found")));
         } else {
-            // Validate each role in the database
+            // Validate each role in the catalog
             for (RoleDto roleDto : roleDtos) {
-                Role role = roleRepository.findByName(roleDto.getName())
+                Role role = roleCatalog.findByName(roleDto.getName())
                         .orElseThrow(() -> new IllegalArgumentException("Role not found: " + roleDto.getName()));
                 roles.add(role);
             }
@@ -152,26 +193,76 @@ public class UserService {
     }
 
     /**
-     * Retrieves users whose username contains the given substring.
+     * Retrieves users whose username contains the given substring, ignoring case.
+     * Usernames starting with the substring come first. The search runs on the in-memory
+     * username index; until the index is loaded, it falls back to a bounded database query.
+     *
+     * @param substring The substring to look for.
+     * @param limit The maximum number of users to return, may be null.
+     * @return The matching users.
      */
-    public List<UserDto> getUsernamesListBySubstring(String substring) {
+    public List<UserSummaryDto> getUsernamesListBySubstring(String substring, Integer limit) {
         log.debug("Searching for usernames containing the substring: {}", substring);
 
-        return repository.findAll().stream()
-                .filter(user -> user.getUsername().toLowerCase()
-                        .contains(substring.trim().toLowerCase()))
-                .map(user -> modelMapper.map(user, UserDto.class))
-                .collect(Collectors.toList());
+        final int maxResults = CursorUtils.normalizeLimit(limit);
+        if (usernameSearchIndex.isLoaded()) {
+            return usernameSearchIndex.search(substring, maxResults);
+        }
+
+        log.debug("Username index not loaded yet, searching the database");
+        return repository.findByUsernameMatching(Pattern.quote(substring.trim()), PageRequest.of(0, maxResults)).stream()
+                .map(this::toSummary)
+                .toList();
     }
 
     /**
-     * Retrieves a list of all users in the system.
+     * Suggests existing usernames close to a possibly misspelled one, without querying the database.
+     * Nothing is suggested while the index is still loading.
+     *
+     * @param username    the username as typed by the user
+     * @param maxDistance the maximum number of edits, between 1 and {@link UsernameFuzzyIndex#MAX_DISTANCE}; defaults to the maximum
+     * @param limit       the maximum number of suggestions, defaults to {@link CursorUtils#DEFAULT_PAGE_SIZE}
+     * @return the closest users first
+     */
+    public List<UserSummaryDto> suggestUsernames(String username, Integer maxDistance, Integer limit) {
+        log.debug("Suggesting usernames close to: {}", username);
+
+        if (!usernameFuzzyIndex.isLoaded()) {
+            log.debug("Username index not loaded yet, no suggestions");
+            return List.of();
+        }
+        final int distance = maxDistance == null
+                ? UsernameFuzzyIndex.MAX_DISTANCE
+                : Math.max(1, Math.min(maxDistance, UsernameFuzzyIndex.MAX_DISTANCE));
+        return usernameFuzzyIndex.search(username, distance, CursorUtils.normalizeLimit(limit));
+    }
+
+    /**
+     * Retrieves one page of the user directory, newest users first.
+     * Only the summary fields of the users are read from the database.
+     *
+     * @param limit  the maximum number of users, defaults to {@link CursorUtils#DEFAULT_PAGE_SIZE}
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @return the page of users and the cursor of the next page
      */
-    public List<UserDto> list() {
-        log.debug("Fetching the list of all users.");
+    public PageDto<UserSummaryDto> list(Integer limit, String cursor) {
+        log.debug("Fetching a page of users, cursor: {}", cursor);
+
+        final int pageSize = CursorUtils.normalizeLimit(limit);
+        final CursorUtils.Keyset after = CursorUtils.decode(cursor);
+
+        // Fetch one extra user to find out whether a next page exists
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+        final List<User> users = after == null
+                ? repository.findSummaryPage(pageable)
+                : repository.findSummaryPageAfter(after.getCreatedAt(), after.getId(), pageable);
+
+        return CursorUtils.toPage(users, pageSize,
+                this::toSummary,
+                user -> CursorUtils.encode(user.getCreatedAt(), user.getId()));
+    }
 
-        return repository.findAll().stream()
-                .map(user -> modelMapper.map(user, UserDto.class))
-                .collect(Collectors.toList());
+    private UserSummaryDto toSummary(User user) {
+        return new UserSummaryDto(user.getId(), user.getUsername(), user.getCreatedAt());
     }
 }
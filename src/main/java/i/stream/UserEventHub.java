@@ -0,0 +1,281 @@
+package i.stream;
+
+import i.event.MessageSentEvent;
+import i.event.MessagesReadEvent;
+import i.event.PostImageProcessedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes events to the users connected to the server-sent event stream.
+ * Publishing never blocks: events are queued in a bounded buffer per subscriber and written by a small
+ * pool of sender threads. A subscriber whose buffer is full is too slow to keep up and is disconnected;
+ * the client reconnects and catches up through the regular endpoints. Heartbeats keep idle connections
+ * open through proxies and reveal connections closed by the client.
+ */
+@Slf4j
+@Component
+public class UserEventHub {
+
+    private static final String HEARTBEAT = "heartbeat";
+
+    private final Map<String, Set<Subscriber>> subscribersByUsername;
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final Counter evictions;
+    private final int bufferSize;
+    private final int maxSubscriptionsPerUser;
+    private final long timeoutMillis;
+
+    @Autowired
+    public UserEventHub(
+            MeterRegistry meterRegistry,
+            @Value("${messages.stream.buffer-size:256}") int bufferSize,
+            @Value("${messages.stream.max-subscriptions-per-user:5}") int maxSubscriptionsPerUser,
+            @Value("${messages.stream.sender-threads:4}") int senderThreads,
+            @Value("${messages.stream.timeout:30m}") Duration timeout) {
+        this(meterRegistry, bufferSize, maxSubscriptionsPerUser, timeout, senderPool(senderThreads));
+    }
+
+    UserEventHub(MeterRegistry meterRegistry, int bufferSize, int maxSubscriptionsPerUser,
+                 Duration timeout, ExecutorService senders) {
+        this(meterRegistry, bufferSize, maxSubscriptionsPerUser, timeout, senders, new ConcurrentHashMap<>());
+    }
+
+    UserEventHub(MeterRegistry meterRegistry, int bufferSize, int maxSubscriptionsPerUser,
+                 Duration timeout, ExecutorService senders, ConcurrentHashMap<String, Set<Subscriber>> subscribersByUsername) {
+        this.subscribersByUsername = subscribersByUsername;
+        this.bufferSize = bufferSize;
+        this.maxSubscriptionsPerUser = maxSubscriptionsPerUser;
+        this.timeoutMillis = timeout.toMillis();
+        this.senders = senders;
+        meterRegistry.gauge("messages.stream.subscribers", subscriberCount);
+        this.evictions = Counter.builder("messages.stream.evictions")
+                .description("Subscribers disconnected because they could not keep up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens an event stream for a user. A user may have several streams (tabs, devices);
+     * beyond the limit, the oldest stream of the user is closed.
+     *
+     * @param username the authenticated user
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(String username) {
+        final Subscriber subscriber = new Subscriber(username, new SseEmitter(timeoutMillis), bufferSize);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(error -> remove(subscriber));
+
+        // Add the subscriber inside the map operation: removing the last stream of the user drops the set
+        // from the map, so a set obtained first could be dropped before the subscriber is added to it
+        final Set<Subscriber> subscribers = subscribersByUsername.compute(username, (key, current) -> {
+            final Set<Subscriber> set = current == null ? ConcurrentHashMap.newKeySet() : current;
+            set.add(subscriber);
+            return set;
+        });
+        subscriberCount.incrementAndGet();
+        if (subscribers.size() > maxSubscriptionsPerUser) {
+            subscribers.stream()
+                    .min((a, b) -> Long.compare(a.subscribedAt, b.subscribedAt))
+                    .ifPresent(oldest -> close(oldest, "too many streams"));
+        }
+
+        // Let the client know the stream is open, through the same ordered queue as the other events
+        subscriber.offer(SseEmitter.event().comment("connected"));
+        schedule(subscriber);
+        log.debug("User {} subscribed to the event stream", username);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Queues an event for all streams of a user. Never blocks.
+     *
+     * @param username the user to notify
+     * @param name     the name of the event
+     * @param data     the payload of the event, serialized as JSON
+     */
+    public void publish(String username, String name, Object data) {
+        final Set<Subscriber> subscribers = subscribersByUsername.get(username);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(SseEmitter.event().name(name).data(data))) {
+                schedule(subscriber);
+            } else {
+                evictions.increment();
+                close(subscriber, "buffer full");
+            }
+        }
+    }
+
+    /**
+     * Pushes a new message to the streams of its recipient and to the other streams of its sender.
+     *
+     * @param event the sent message
+     */
+    @EventListener
+    public void onMessageSent(MessageSentEvent event) {
+        publish(event.message().getRecipient(), "message", event.message());
+        if (!event.message().getSender().equals(event.message().getRecipient())) {
+            publish(event.message().getSender(), "message", event.message());
+        }
+    }
+
+    /**
+     * Sends a read receipt to the streams of the sender of the messages that were read.
+     *
+     * @param event the read messages
+     */
+    @EventListener
+    public void onMessagesRead(MessagesReadEvent event) {
+        publish(event.sender(), "read", event);
+    }
+
+    /**
+     * Notifies the author of a post that the background upload of its image has completed or failed.
+     *
+     * @param event the outcome of the upload
+     */
+    @EventListener
+    public void onPostImageProcessed(PostImageProcessedEvent event) {
+        publish(event.username(), "post-image", event);
+    }
+
+    /**
+     * Sends a comment line to every stream, to keep idle connections open and detect closed ones.
+     */
+    @Scheduled(fixedDelayString = "${messages.stream.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        for (Collection<Subscriber> subscribers : subscribersByUsername.values()) {
+            for (Subscriber subscriber : subscribers) {
+                // A missed heartbeat is harmless, so a full buffer is left to the next message
+                if (subscriber.offer(SseEmitter.event().comment(HEARTBEAT))) {
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of open streams
+     */
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribersByUsername.values().forEach(subscribers -> List.copyOf(subscribers)
+                .forEach(subscriber -> close(subscriber, "shutdown")));
+        senders.shutdownNow();
+    }
+
+    // Makes sure a sender thread drains the buffer of the subscriber; at most one at a time per subscriber
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed.get() && (event = subscriber.buffer.poll()) != null) {
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Event stream of user {} closed: {}", subscriber.username, e.getMessage());
+                    close(subscriber, null);
+                    return;
+                }
+            }
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An event may have been queued after the last poll but before the flag was cleared
+        if (!subscriber.buffer.isEmpty() && !subscriber.closed.get()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void close(Subscriber subscriber, String reason) {
+        if (reason != null) {
+            log.info("Closing event stream of user {}: {}", subscriber.username, reason);
+        }
+        remove(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (RuntimeException e) {
+            log.debug("Failed to complete event stream of user {}", subscriber.username, e);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriber.buffer.clear();
+        subscriberCount.decrementAndGet();
+        subscribersByUsername.computeIfPresent(subscriber.username, (username, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    // Each subscriber has at most one drain task queued, so the task queue is bounded by the subscribers
+    private static ExecutorService senderPool(int threads) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "user-event-sender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    static class Subscriber {
+        private final String username;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> buffer;        // Events waiting to be written
+        private final AtomicBoolean draining = new AtomicBoolean();    // Whether a sender thread owns the buffer
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final long subscribedAt = System.nanoTime();
+
+        Subscriber(String username, SseEmitter emitter, int bufferSize) {
+            this.username = username;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            return !closed.get() && buffer.offer(event);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package i.utils;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+
+import java.util.List;
+
+/**
+ * Helpers for counters maintained with server-side updates.
+ */
+public class CounterUtils {
+
+    /**
+     * Builds an update that decrements a counter without letting it drop below zero.
+     * A plain $inc could go negative when the counter missed increments, for example
+     * for items created before the counter existed.
+     *
+     * @param field  the counter field
+     * @param amount the amount to subtract
+     * @return the pipeline update
+     */
+    public static AggregationUpdate decrement(String field, long amount) {
+        return AggregationUpdate.update()
+                .set(field).toValue(new Document("$max", List.of(0L, new Document("$subtract", List.of("$" + field, amount)))));
+    }
+}
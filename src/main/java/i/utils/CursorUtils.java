@@ -0,0 +1,104 @@
+package i.utils;
+
+import i.dto.PageDto;
+import i.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for keyset (cursor) pagination over documents ordered by (createdAt, id).
+ * Cursors are opaque, URL-safe strings that encode the key of the last item of a page.
+ */
+public class CursorUtils {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Encodes the key of the last item of a page into an opaque cursor.
+     *
+     * @param createdAt the creation date of the item
+     * @param id        the ID of the item
+     * @return the encoded cursor
+     */
+    public static String encode(LocalDateTime createdAt, String id) {
+        final String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode(LocalDateTime, String)}.
+     *
+     * @param cursor the cursor sent by the client, may be null or blank for the first page
+     * @return the decoded key, or null if no cursor was given
+     * @throws InvalidCursorException if the cursor cannot be decoded
+     */
+    public static Keyset decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            return new Keyset(LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    raw.substring(separatorIndex + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Clamps the requested page size to the allowed range, falling back to the default size.
+     *
+     * @param limit the requested page size, may be null
+     * @return the page size to use
+     */
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Builds a page from rows fetched with one extra row beyond the page size.
+     * The extra row only signals that a next page exists and is not returned.
+     *
+     * @param rows     the fetched rows, at most limit + 1
+     * @param limit    the page size
+     * @param mapper   maps a row to its DTO
+     * @param cursorOf encodes the cursor of a row
+     * @return the page with the next cursor set when more rows exist
+     */
+    public static <E, D> PageDto<D> toPage(List<E> rows, int limit,
+                                           Function<E, D> mapper, Function<E, String> cursorOf) {
+        final boolean hasNext = rows.size() > limit;
+        final List<E> pageRows = hasNext ? rows.subList(0, limit) : rows;
+
+        final List<D> items = pageRows.stream().map(mapper).toList();
+        final String nextCursor = hasNext ? cursorOf.apply(pageRows.get(pageRows.size() - 1)) : null;
+        return new PageDto<>(items, nextCursor);
+    }
+
+    /**
+     * Decoded position of a cursor.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Keyset {
+        private final LocalDateTime createdAt;  // Creation date of the last item of the previous page
+        private final String id;                // ID of the last item of the previous page
+    }
+}
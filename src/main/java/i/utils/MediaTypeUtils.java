@@ -0,0 +1,94 @@
+package i.utils;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Helpers for accepting and serving stored images.
+ * Only raster formats recognized by their magic bytes are images here: content such as HTML or SVG
+ * could run scripts if it were served inline from the API origin.
+ */
+public class MediaTypeUtils {
+
+    // The number of leading bytes needed to recognize every accepted format
+    public static final int SIGNATURE_LENGTH = 12;
+
+    public static final MediaType IMAGE_WEBP = MediaType.parseMediaType("image/webp");
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] JPEG = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+    private static final byte[] GIF87 = {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89 = {'G', 'I', 'F', '8', '9', 'a'};
+    private static final byte[] RIFF = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP = {'W', 'E', 'B', 'P'};
+
+    /**
+     * Recognizes a PNG, JPEG, GIF or WebP image from its first bytes.
+     * The stream is read up to {@link #SIGNATURE_LENGTH} bytes; callers that go on reading it
+     * must mark and reset it.
+     *
+     * @param in the content
+     * @return the media type of the image, or empty if the content is not an accepted image
+     */
+    public static Optional<MediaType> detectImage(InputStream in) throws IOException {
+        final byte[] header = in.readNBytes(SIGNATURE_LENGTH);
+        if (startsWith(header, PNG, 0)) {
+            return Optional.of(MediaType.IMAGE_PNG);
+        }
+        if (startsWith(header, JPEG, 0)) {
+            return Optional.of(MediaType.IMAGE_JPEG);
+        }
+        if (startsWith(header, GIF87, 0) || startsWith(header, GIF89, 0)) {
+            return Optional.of(MediaType.IMAGE_GIF);
+        }
+        if (startsWith(header, RIFF, 0) && startsWith(header, WEBP, 8)) {
+            return Optional.of(IMAGE_WEBP);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Guesses the media type of a stored file from its first bytes, for files stored without extension.
+     *
+     * @param path the path of the file
+     * @return the image media type, or application/octet-stream if the file is not an accepted image
+     */
+    public static MediaType guess(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            return detectImage(in).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + path, e);
+        }
+    }
+
+    /**
+     * Builds the content headers for serving a stored file: images are served inline, anything else
+     * as an attachment, so that a browser never renders it as a page of the API origin.
+     *
+     * @param path the path of the file
+     * @return the Content-Type and, for files that are not images, Content-Disposition headers
+     */
+    public static HttpHeaders contentHeaders(Path path) {
+        final MediaType mediaType = guess(path);
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        if (!"image".equals(mediaType.getType())) {
+            headers.setContentDisposition(ContentDisposition.attachment().build());
+        }
+        return headers;
+    }
+
+    private static boolean startsWith(byte[] content, byte[] prefix, int offset) {
+        return content.length >= offset + prefix.length
+                && Arrays.equals(content, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+}
@@ -0,0 +1,182 @@
+package i.config;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ListIndexesIterable;
+import com.mongodb.client.MongoCollection;
+import i.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.Description;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexInitializerTest {
+
+    private static final String STAND_IN = User.USERNAME_INDEX + IndexInitializer.STAND_IN_SUFFIX;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOps;
+
+    @Mock
+    private IndexOperations userIndexOps;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    @Mock
+    private ListIndexesIterable<Document> indexes;
+
+    private IndexInitializer initializer;
+    private IndexDefinition declared;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new IndexInitializer(mongoTemplate);
+        declared = new Index().on("username", Sort.Direction.ASC).named(User.USERNAME_INDEX).unique();
+    }
+
+    private static RuntimeException conflict() {
+        return new UncategorizedMongoDbException("Index already exists with different options",
+                new MongoException(85, "IndexOptionsConflict"));
+    }
+
+    private static IndexDefinition named(String name) {
+        return argThat(index -> index != null && name.equals(index.getIndexOptions().getString("name")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenExistingIndex(Document index) {
+        when(mongoTemplate.getCollectionName(User.class)).thenReturn("users");
+        when(mongoTemplate.getCollection("users")).thenReturn(collection);
+        when(collection.listIndexes()).thenReturn(indexes);
+        when(indexes.into(any())).thenAnswer(invocation -> {
+            Collection<Document> target = invocation.getArgument(0);
+            target.add(new Document("name", "_id_").append("key", new Document("_id", 1)));
+            target.add(index);
+            return target;
+        });
+    }
+
+    @Test
+    @Description("Test that a conflicting index is replaced behind a stand-in, which is dropped once the index is rebuilt")
+    void ensureIndex_ShouldReplaceConflictingIndexBehindStandIn() {
+        givenExistingIndex(new Document("name", "username").append("key", new Document("username", 1)));
+        when(indexOps.ensureIndex(named(User.USERNAME_INDEX))).thenThrow(conflict()).thenReturn(User.USERNAME_INDEX);
+        when(indexOps.ensureIndex(named(STAND_IN))).thenReturn(STAND_IN);
+
+        initializer.ensureIndex(User.class, indexOps, declared);
+
+        InOrder order = inOrder(indexOps);
+        order.verify(indexOps).ensureIndex(named(User.USERNAME_INDEX));
+        order.verify(indexOps).ensureIndex(named(STAND_IN));
+        order.verify(indexOps).dropIndex("username");
+        order.verify(indexOps).ensureIndex(named(User.USERNAME_INDEX));
+        order.verify(indexOps).dropIndex(STAND_IN);
+        verify(indexOps, never()).dropIndex("_id_");
+    }
+
+    @Test
+    @Description("Test that the stand-in is kept when the declared index cannot be rebuilt, so its keys stay indexed")
+    void ensureIndex_ShouldKeepStandIn_WhenReplacementFails() {
+        givenExistingIndex(new Document("name", User.USERNAME_INDEX).append("key", new Document("username", 1)));
+        when(indexOps.ensureIndex(named(User.USERNAME_INDEX)))
+                .thenThrow(conflict())
+                .thenThrow(new UncategorizedMongoDbException("E11000 duplicate key error",
+                        new MongoException(11000, "DuplicateKey")));
+        ArgumentCaptor<IndexDefinition> standIn = ArgumentCaptor.forClass(IndexDefinition.class);
+        when(indexOps.ensureIndex(named(STAND_IN))).thenReturn(STAND_IN);
+
+        initializer.ensureIndex(User.class, indexOps, declared);
+
+        verify(indexOps).dropIndex(User.USERNAME_INDEX);
+        verify(indexOps, never()).dropIndex(STAND_IN);
+        verify(indexOps, atLeastOnce()).ensureIndex(standIn.capture());
+        assertEquals(new Document("username", 1).append(IndexInitializer.STAND_IN_KEY, 1),
+                standIn.getAllValues().stream()
+                        .filter(index -> STAND_IN.equals(index.getIndexOptions().getString("name")))
+                        .findFirst().orElseThrow().getIndexKeys());
+    }
+
+    @Test
+    @Description("Test that the conflicting index is left alone when its stand-in cannot be built")
+    void ensureIndex_ShouldNotDrop_WhenStandInFails() {
+        givenExistingIndex(new Document("name", User.USERNAME_INDEX).append("key", new Document("username", 1)));
+        when(indexOps.ensureIndex(named(User.USERNAME_INDEX))).thenThrow(conflict());
+        when(indexOps.ensureIndex(named(STAND_IN))).thenThrow(new UncategorizedMongoDbException("Too many indexes",
+                new MongoException(67, "CannotCreateIndex")));
+
+        initializer.ensureIndex(User.class, indexOps, declared);
+
+        verify(indexOps, never()).dropIndex(anyString());
+    }
+
+    @Test
+    @Description("Test that other index creation failures are only logged")
+    void ensureIndex_ShouldNotReplace_WhenFailureIsNotAConflict() {
+        when(indexOps.ensureIndex(any())).thenThrow(new UncategorizedMongoDbException("Timed out",
+                new MongoException(50, "MaxTimeMSExpired")));
+
+        initializer.ensureIndex(User.class, indexOps, declared);
+
+        verify(indexOps, never()).dropIndex(anyString());
+        verify(mongoTemplate, never()).getCollection(anyString());
+    }
+
+    @Test
+    @Description("Test that only the unique indexes found once creation finishes are reported as ready")
+    void isUniqueIndexReady_ShouldReportVerifiedUniqueIndexes() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.getCollectionName(any())).thenAnswer(invocation ->
+                invocation.<Class<?>>getArgument(0).getSimpleName());
+        when(mongoTemplate.indexOps(any(Class.class))).thenReturn(indexOps);
+        when(indexOps.getIndexInfo()).thenReturn(List.of());
+        when(mongoTemplate.indexOps(User.class)).thenReturn(userIndexOps);
+        // The email index could not be built, e.g. because of duplicate emails
+        when(userIndexOps.getIndexInfo()).thenReturn(List.of(
+                new IndexInfo(List.of(IndexField.create("username", Sort.Direction.ASC)), User.USERNAME_INDEX,
+                        true, false, null)));
+
+        assertFalse(initializer.isUniqueIndexReady(User.class, User.USERNAME_INDEX));
+        initializer.ensureIndexes();
+
+        assertTrue(initializer.isUniqueIndexReady(User.class, User.USERNAME_INDEX));
+        assertFalse(initializer.isUniqueIndexReady(User.class, User.EMAIL_INDEX));
+    }
+}
@@ -1,7 +1,10 @@
 package i.controller;
 
 import i.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import i.security.JwtUtils;
+import i.security.RoleCatalog;
 import i.security.SecurityConfig;
 import i.service.AuthService;
 import org.junit.jupiter.api.DisplayName;
@@ -40,6 +43,9 @@ public class AuthControllerHealthCheckTest {
     @MockBean
     private UserRepository userRepository;
 
+    @MockBean
+    private RoleCatalog roleCatalog;
+
     /**
      * Test case for invalid token in the Authorization header.
      * Expected status: HTTP 401 (Unauthorized).
@@ -48,7 +54,7 @@ public class AuthControllerHealthCheckTest {
     @DisplayName("Should return 401 for invalid token")
     public void shouldReturn401ForInvalidToken() throws Exception {
         // Mock behavior for JwtUtils when token is invalid
-        Mockito.when(jwtUtils.extractUsername("invalid_token"))
+        Mockito.when(jwtUtils.verify("invalid_token"))
                 .thenThrow(new RuntimeException("Invalid token"));
 
         // Perform GET request with an invalid token
@@ -71,8 +77,9 @@ public class AuthControllerHealthCheckTest {
         // Mock loading user details and token validation
         Mockito.when(userDetailsService.loadUserByUsername("testuser"))
                 .thenReturn(mockUserDetails);
-        Mockito.when(jwtUtils.extractUsername("valid_token")).thenReturn("testuser");
-        Mockito.when(jwtUtils.isTokenValid(Mockito.eq("valid_token"), Mockito.eq(mockUserDetails)))
+        Claims claims = Jwts.claims().setSubject("testuser");
+        Mockito.when(jwtUtils.verify("valid_token")).thenReturn(claims);
+        Mockito.when(jwtUtils.isTokenValid(Mockito.eq(claims), Mockito.eq(mockUserDetails)))
                 .thenReturn(true);
 
         // Perform GET request with a valid token
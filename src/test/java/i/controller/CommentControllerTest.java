@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import i.dto.CommentCreateRequestDto;
 import i.dto.CommentCreateResponseDto;
 import i.dto.CommentDto;
+import i.dto.CommentNodeDto;
+import i.dto.PageDto;
 import i.exception.CommentNotFoundException;
 import i.interceptors.ControllerExceptionHandler;
 import i.security.JwtUtils;
@@ -20,6 +22,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -57,6 +60,7 @@ class CommentControllerTest {
                 """
                         {
                             "itemId": "123",
+                            "itemType": "POST",
                             "content": "This is a test comment",
                             "parentCommentId": null
                         }
@@ -93,6 +97,25 @@ class CommentControllerTest {
                 .andExpect(jsonPath("$.createdAt").value("2024-12-10T10:00:00Z"));
     }
 
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Test
+    @Description("Test to verify that creating a comment without an item type results in 400 Bad Request.")
+    void createComment_ShouldReturnBadRequestWhenItemTypeIsMissing() throws Exception {
+        mockMvc.perform(post("/comments")
+                        .with(csrf()) // Enable CSRF token for security
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "itemId": "123",
+                                    "content": "This is a test comment"
+                                }
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.itemType").value("Item type cannot be null"));
+
+        Mockito.verifyNoInteractions(commentService);
+    }
+
     @Test
     @WithMockUser(username = "testUser") // Simulate user authentication
     @Description("Test to retrieve a comment by ID and verify the returned data matches the expected values.")
@@ -155,16 +178,19 @@ class CommentControllerTest {
                 CommentDto.class);
 
         // Mock the listCommentsByPostId service method
-        Mockito.when(commentService.listCommentsByPostId("123"))
-                .thenReturn(List.of(commentDto1, commentDto2));
+        Mockito.when(commentService.listCommentsByPostId("123", 2, "abc"))
+                .thenReturn(new PageDto<>(List.of(commentDto1, commentDto2), "next"));
 
         // Act & Assert: perform GET request and validate the response
         mockMvc.perform(get("/comments/post/123")
+                        .param("limit", "2")
+                        .param("cursor", "abc")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(2)) // Check that two comments are returned
-                .andExpect(jsonPath("$[0].id").value("1"))
-                .andExpect(jsonPath("$[1].id").value("2"));
+                .andExpect(jsonPath("$.items.size()").value(2)) // Check that two comments are returned
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[1].id").value("2"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @Test
@@ -172,13 +198,53 @@ class CommentControllerTest {
     @Description("Test to retrieve comments by post ID when no comments exist, expecting an empty list.")
     void getCommentsByPostId_ShouldReturnEmptyList() throws Exception {
         // Mock the listCommentsByPostId service method to return an empty list
-        Mockito.when(commentService.listCommentsByPostId("999")).thenReturn(Collections.emptyList());
+        Mockito.when(commentService.listCommentsByPostId("999", null, null))
+                .thenReturn(new PageDto<>(Collections.emptyList(), null));
 
         // Act & Assert: perform GET request and validate the response
         mockMvc.perform(get("/comments/post/999")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(0)); // Check that the list is empty
+                .andExpect(jsonPath("$.items.size()").value(0)) // Check that the list is empty
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Description("Test to retrieve the comment tree of a post with depth and children limits.")
+    void getCommentTree_ShouldReturnNestedComments() throws Exception {
+        CommentNodeDto reply = new CommentNodeDto("2", "123", "Reply", "testUser", "1",
+                "2024-12-10T10:01:00", new ArrayList<>(), 0, false, null);
+        CommentNodeDto root = new CommentNodeDto("1", "123", "Root", "testUser", null,
+                "2024-12-10T10:00:00", List.of(reply), 3, true, "nextReplies");
+        Mockito.when(commentService.getCommentTree("123", 2, 1, null))
+                .thenReturn(new PageDto<>(List.of(root), "nextRoots"));
+
+        mockMvc.perform(get("/comments/post/123/tree")
+                        .param("maxDepth", "2")
+                        .param("maxChildren", "1")
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[0].replyCount").value(3))
+                .andExpect(jsonPath("$.items[0].hasMoreReplies").value(true))
+                .andExpect(jsonPath("$.items[0].repliesCursor").value("nextReplies"))
+                .andExpect(jsonPath("$.items[0].replies[0].id").value("2"))
+                .andExpect(jsonPath("$.nextCursor").value("nextRoots"));
+    }
+
+    @Test
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Description("Test to continue the replies of a comment from a cursor.")
+    void getReplies_ShouldPassCursor() throws Exception {
+        Mockito.when(commentService.listReplies("1", null, null, "nextReplies"))
+                .thenReturn(new PageDto<>(Collections.emptyList(), null));
+
+        mockMvc.perform(get("/comments/1/replies")
+                        .param("cursor", "nextReplies")
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.size()").value(0));
     }
 
     @Test
@@ -202,6 +268,7 @@ class CommentControllerTest {
                 """
                         {
                             "itemId": "123",
+                            "itemType": "POST",
                             "content": "This is a test comment",
                             "parentCommentId": null
                         }
@@ -290,22 +357,22 @@ class CommentControllerTest {
                 CommentDto.class);
 
         // Mock the getCommentForUserByUserId service method
-        Mockito.when(commentService.getCommentForUserByUserId("testUser"))
-                .thenReturn(List.of(commentDto1, commentDto2));
+        Mockito.when(commentService.getCommentForUserByUserId("testUser", null, null))
+                .thenReturn(new PageDto<>(List.of(commentDto1, commentDto2), null));
 
         // Act & Assert: perform GET request and validate the response
         mockMvc.perform(get("/comments/user/testUser")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(2)) // Check that two comments are returned
-                .andExpect(jsonPath("$[0].id").value("1"))
-                .andExpect(jsonPath("$[1].id").value("2"))
-                .andExpect(jsonPath("$[0].content").value("This is a test comment 1"))
-                .andExpect(jsonPath("$[1].content").value("This is a test comment 2"))
-                .andExpect(jsonPath("$[0].username").value("testUser"))
-                .andExpect(jsonPath("$[1].username").value("testUser"))
-                .andExpect(jsonPath("$[0].createdAt").value("2024-12-10T10:00:00Z"))
-                .andExpect(jsonPath("$[1].createdAt").value("2024-12-10T10:05:00Z"));
+                .andExpect(jsonPath("$.items.size()").value(2)) // Check that two comments are returned
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[1].id").value("2"))
+                .andExpect(jsonPath("$.items[0].content").value("This is a test comment 1"))
+                .andExpect(jsonPath("$.items[1].content").value("This is a test comment 2"))
+                .andExpect(jsonPath("$.items[0].username").value("testUser"))
+                .andExpect(jsonPath("$.items[1].username").value("testUser"))
+                .andExpect(jsonPath("$.items[0].createdAt").value("2024-12-10T10:00:00Z"))
+                .andExpect(jsonPath("$.items[1].createdAt").value("2024-12-10T10:05:00Z"));
     }
 
     @Test
@@ -313,14 +380,14 @@ class CommentControllerTest {
     @Description("Test to retrieve a list of comments by username when no comments exist, expecting an empty list.")
     void getListOfComments_ShouldReturnEmptyListWhenNoCommentsExist() throws Exception {
         // Mock the getCommentForUserByUserId service method to return an empty list
-        Mockito.when(commentService.getCommentForUserByUserId("testUser"))
-                .thenReturn(Collections.emptyList());
+        Mockito.when(commentService.getCommentForUserByUserId("testUser", null, null))
+                .thenReturn(new PageDto<>(Collections.emptyList(), null));
 
         // Act & Assert: perform GET request and validate the response
         mockMvc.perform(get("/comments/user/testUser")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(0)); // Check that the list is empty
+                .andExpect(jsonPath("$.items.size()").value(0)); // Check that the list is empty
     }
 
 }
@@ -0,0 +1,91 @@
+package i.controller;
+
+import i.fileStorageClient.LocalFileStorage;
+import i.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Description;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FileControllerTest {
+
+    private static final byte[] GIF = {'G', 'I', 'F', '8', '9', 'a', 1, 0, 1, 0};
+
+    @TempDir
+    private Path root;
+
+    private MockMvc mockMvc;
+    private String digest;
+
+    @BeforeEach
+    void setUp() {
+        LocalFileStorage storage = new LocalFileStorage(Mockito.mock(PostRepository.class), new SimpleMeterRegistry(),
+                root, "http://localhost/api/files");
+        String url = storage.uploadImage(new ByteArrayResource(GIF)).block();
+        digest = url.substring(url.lastIndexOf('/') + 1);
+        mockMvc = MockMvcBuilders.standaloneSetup(new FileController(storage)).build();
+    }
+
+    @Test
+    @Description("Test that a stored file is served with its content type, ETag and caching headers")
+    void getFile_ShouldReturnFile() throws Exception {
+        mockMvc.perform(get("/files/" + digest))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/gif"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_DISPOSITION))
+                .andExpect(content().bytes(GIF))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + digest + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+    }
+
+    @Test
+    @Description("Test that a request with the current ETag is answered with 304 Not Modified")
+    void getFile_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        mockMvc.perform(get("/files/" + digest).header(HttpHeaders.IF_NONE_MATCH, "\"" + digest + "\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Description("Test that a Range request is answered with partial content")
+    void getFile_ShouldReturnPartialContent_WhenRangeRequested() throws Exception {
+        mockMvc.perform(get("/files/" + digest).header(HttpHeaders.RANGE, "bytes=0-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(new byte[]{'G', 'I', 'F', '8', '9', 'a'}));
+    }
+
+    @Test
+    @Description("Test that a stored file that is not an image is served as an attachment, never inline")
+    void getFile_ShouldServeAttachment_WhenNotAnImage() throws Exception {
+        // Files stored before uploads were checked may hold anything
+        String page = "1".repeat(64);
+        Path path = Files.createDirectories(root.resolve("11").resolve("11")).resolve(page);
+        Files.writeString(path, "<html><script>alert(1)</script></html>");
+
+        mockMvc.perform(get("/files/" + page))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment"));
+    }
+
+    @Test
+    @Description("Test that an unknown or malformed digest is answered with 404")
+    void getFile_ShouldReturnNotFound_WhenMissing() throws Exception {
+        mockMvc.perform(get("/files/" + "0".repeat(64))).andExpect(status().isNotFound());
+        mockMvc.perform(get("/files/..%2F..%2Fetc%2Fpasswd")).andExpect(status().isNotFound());
+    }
+}
@@ -1,9 +1,13 @@
 package i.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import i.dto.ConversationDto;
 import i.dto.MessageDto;
+import i.dto.PageDto;
+import i.dto.UnreadCountDto;
 import i.security.JwtUtils;
 import i.service.MessageService;
+import i.stream.UserEventHub;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
@@ -14,6 +18,7 @@ import org.springframework.context.annotation.Description;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -24,6 +29,7 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -36,6 +42,9 @@ class MessageControllerTest {
     @MockBean
     private MessageService messageService;
 
+    @MockBean
+    private UserEventHub userEventHub;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -47,7 +56,7 @@ class MessageControllerTest {
     @Description("Test to send a message and verify the returned MessageDto contains the correct data.")
     void sendMessage_ShouldReturnMessageDto() throws Exception {
         final MessageDto responseDto = new MessageDto(
-                "1", "testUser", "recipientUser", "Hello, world!", LocalDateTime.now(), new HashSet<>());
+                "1", "testUser", "recipientUser", "Hello, world!", LocalDateTime.now(), new HashSet<>(), null);
 
         // Mock the service method
         Mockito.when(messageService.sendMessage(eq("recipientUser"), eq("testUser"), eq("Hello, world!")))
@@ -72,24 +81,25 @@ class MessageControllerTest {
     @Description("Test to retrieve a list of messages sent by the authenticated user.")
     void getSentMessages_ShouldReturnListOfMessages() throws Exception {
         // Arrange: create a list of MessageDto objects
-        final MessageDto messageDto1 = new MessageDto("1", "testUser", "recipient1", "Message 1", LocalDateTime.now(), new HashSet<>());
-        final MessageDto messageDto2 = new MessageDto("2", "testUser", "recipient2", "Message 2", LocalDateTime.now(), new HashSet<>());
+        final MessageDto messageDto1 = new MessageDto("1", "testUser", "recipient1", "Message 1", LocalDateTime.now(), new HashSet<>(), null);
+        final MessageDto messageDto2 = new MessageDto("2", "testUser", "recipient2", "Message 2", LocalDateTime.now(), new HashSet<>(), null);
 
         // Mock the service method
-        Mockito.when(messageService.getMessagesBySender("testUser"))
-                .thenReturn(List.of(messageDto1, messageDto2));
+        Mockito.when(messageService.getMessagesBySender("testUser", null, null))
+                .thenReturn(new PageDto<>(List.of(messageDto1, messageDto2), "next"));
 
         // Act & Assert: perform GET request and validate the response
         mockMvc.perform(get("/messages/sent")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(2)) // Expect two messages
-                .andExpect(jsonPath("$[0].id").value("1"))
-                .andExpect(jsonPath("$[0].sender").value("testUser"))
-                .andExpect(jsonPath("$[0].recipient").value("recipient1"))
-                .andExpect(jsonPath("$[1].id").value("2"))
-                .andExpect(jsonPath("$[1].sender").value("testUser"))
-                .andExpect(jsonPath("$[1].recipient").value("recipient2"));
+                .andExpect(jsonPath("$.items.size()").value(2)) // Expect two messages
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[0].sender").value("testUser"))
+                .andExpect(jsonPath("$.items[0].recipient").value("recipient1"))
+                .andExpect(jsonPath("$.items[1].id").value("2"))
+                .andExpect(jsonPath("$.items[1].sender").value("testUser"))
+                .andExpect(jsonPath("$.items[1].recipient").value("recipient2"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @WithMockUser(username = "testUser") // Simulate user authentication
@@ -97,22 +107,25 @@ class MessageControllerTest {
     @Description("Test to retrieve a list of messages received by the authenticated user.")
     void getReceivedMessages_ShouldReturnListOfMessages() throws Exception {
         // Arrange: create a list of MessageDto objects
-        final MessageDto messageDto1 = new MessageDto("1", "sender1", "testUser", "Received Message 1", LocalDateTime.now(), new HashSet<>());
-        final MessageDto messageDto2 = new MessageDto("2", "sender2", "testUser", "Received Message 2", LocalDateTime.now(), new HashSet<>());
+        final MessageDto messageDto1 = new MessageDto("1", "sender1", "testUser", "Received Message 1", LocalDateTime.now(), new HashSet<>(), null);
+        final MessageDto messageDto2 = new MessageDto("2", "sender2", "testUser", "Received Message 2", LocalDateTime.now(), new HashSet<>(), null);
 
         // Mock the service method
-        Mockito.when(messageService.getMessagesByRecipient("testUser"))
-                .thenReturn(List.of(messageDto1, messageDto2));
+        Mockito.when(messageService.getMessagesByRecipient("testUser", 2, "abc"))
+                .thenReturn(new PageDto<>(List.of(messageDto1, messageDto2), null));
 
         // Act & Assert: perform GET request and validate the response
         mockMvc.perform(get("/messages/received")
+                        .param("limit", "2")
+                        .param("cursor", "abc")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(2)) // Expect two messages
-                .andExpect(jsonPath("$[0].id").value("1"))
-                .andExpect(jsonPath("$[0].recipient").value("testUser"))
-                .andExpect(jsonPath("$[1].id").value("2"))
-                .andExpect(jsonPath("$[1].recipient").value("testUser"));
+                .andExpect(jsonPath("$.items.size()").value(2)) // Expect two messages
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[0].recipient").value("testUser"))
+                .andExpect(jsonPath("$.items[1].id").value("2"))
+                .andExpect(jsonPath("$.items[1].recipient").value("testUser"))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
     }
 
     @WithMockUser(username = "testUser") // Simulate user authentication
@@ -120,7 +133,7 @@ class MessageControllerTest {
     @Description("Test to retrieve a single message by its ID.")
     void getMessageById_ShouldReturnMessageDto() throws Exception {
         // Arrange: create MessageDto
-        final MessageDto messageDto = new MessageDto("1", "sender1", "testUser", "Test Message", LocalDateTime.now(), new HashSet<>());
+        final MessageDto messageDto = new MessageDto("1", "sender1", "testUser", "Test Message", LocalDateTime.now(), new HashSet<>(), null);
 
         // Mock the service method
         Mockito.when(messageService.getMessagesById("1", "testUser"))
@@ -138,12 +151,92 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.commentIds").isEmpty()); // Validate that commentIds is empty
     }
 
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Test
+    @Description("Test to open the event stream of the authenticated user.")
+    void stream_ShouldSubscribeAuthenticatedUser() throws Exception {
+        Mockito.when(userEventHub.subscribe("testUser")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/messages/stream"))
+                .andExpect(request().asyncStarted());
+
+        Mockito.verify(userEventHub).subscribe("testUser");
+    }
+
+    @Test
+    @Description("Test to ensure unauthorized access when opening the event stream without authentication.")
+    void stream_ShouldReturnUnauthorizedWhenNotAuthenticated() throws Exception {
+        mockMvc.perform(get("/messages/stream"))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(userEventHub);
+    }
+
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Test
+    @Description("Test to mark received messages as read up to a message.")
+    void markRead_ShouldReturnUnreadCount() throws Exception {
+        Mockito.when(messageService.markReadUpTo("testUser", "5")).thenReturn(new UnreadCountDto(2));
+
+        mockMvc.perform(post("/messages/read")
+                        .param("upTo", "5")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unreadCount").value(2));
+    }
+
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Test
+    @Description("Test to retrieve the number of unread messages of the authenticated user.")
+    void getUnreadCount_ShouldReturnUnreadCount() throws Exception {
+        Mockito.when(messageService.getUnreadCount("testUser")).thenReturn(new UnreadCountDto(7));
+
+        mockMvc.perform(get("/messages/unread-count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unreadCount").value(7));
+    }
+
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Test
+    @Description("Test to retrieve the conversations of the authenticated user.")
+    void getConversations_ShouldReturnPageOfConversations() throws Exception {
+        // Arrange: create a ConversationDto
+        final ConversationDto conversationDto = new ConversationDto(
+                "otherUser", "1", "otherUser", "Hello", LocalDateTime.now(), 3);
+
+        // Mock the service method
+        Mockito.when(messageService.getConversations("testUser", 10, null))
+                .thenReturn(new PageDto<>(List.of(conversationDto), "next"));
+
+        // Act & Assert: perform GET request and validate the response
+        mockMvc.perform(get("/messages/conversations")
+                        .param("limit", "10")
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.size()").value(1))
+                .andExpect(jsonPath("$.items[0].counterpart").value("otherUser"))
+                .andExpect(jsonPath("$.items[0].lastMessagePreview").value("Hello"))
+                .andExpect(jsonPath("$.items[0].unreadCount").value(3))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @WithMockUser(username = "testUser") // Simulate user authentication
+    @Test
+    @Description("Test to mark a conversation as read by the authenticated user.")
+    void markConversationRead_ShouldReturnNoContent() throws Exception {
+        mockMvc.perform(post("/messages/conversations/otherUser/read")
+                        .with(csrf()))
+                .andExpect(status().isNoContent());
+
+        Mockito.verify(messageService).markConversationRead("testUser", "otherUser");
+    }
+
     @Test
     @Description("Test to ensure unauthorized access when sending a message without authentication.")
     void sendMessage_ShouldReturnUnauthorizedWhenNotAuthenticated() throws Exception {
         // Arrange: create request DTO
         final MessageDto requestDto = new MessageDto(
-                null, "testUser", "recipientUser", "Hello, world!", null, new HashSet<>());
+                null, "testUser", "recipientUser", "Hello, world!", null, new HashSet<>(), null);
 
         // Act & Assert: perform POST request without authentication and expect 401 Unauthorized
         mockMvc.perform(post("/messages")
@@ -1,5 +1,6 @@
 package i.controller;
 
+import i.dto.PageDto;
 import i.dto.PostCreateResponseDto;
 import i.dto.PostDto;
 import i.dto.PostFileUrlDto;
@@ -7,31 +8,43 @@ import i.security.JwtUtils;
 import i.service.PostService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Description;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(PostController.class)
 class PostControllerTest {
 
+    private static final byte[] GIF = {'G', 'I', 'F', '8', '9', 'a', 1, 0, 1, 0};
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -87,17 +100,34 @@ class PostControllerTest {
         postDto.setCommentIds(new HashSet<>(List.of("comment1", "comment2")));
         postDto.setImageUrl("https://example.com/image.jpg");
 
-        Mockito.when(postService.list(null)).thenReturn(List.of(postDto));
+        Mockito.when(postService.list(null, null, null)).thenReturn(new PageDto<>(List.of(postDto), "next"));
 
         // Execute the request and verify the response
         mockMvc.perform(get("/posts")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(1))
-                .andExpect(jsonPath("$[0].id").value("1"))
-                .andExpect(jsonPath("$[0].title").value("Sample Title"))
-                .andExpect(jsonPath("$[0].username").value("author"))
-                .andExpect(jsonPath("$[0].imageUrl").value("https://example.com/image.jpg"));
+                .andExpect(jsonPath("$.items.size()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[0].title").value("Sample Title"))
+                .andExpect(jsonPath("$.items[0].username").value("author"))
+                .andExpect(jsonPath("$.items[0].imageUrl").value("https://example.com/image.jpg"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @WithMockUser(username = "testUser")
+    @Test
+    @Description("Test to retrieve the next page of posts of a user with limit and cursor.")
+    void getListOfPostsForUser_ShouldPassLimitAndCursor() throws Exception {
+        Mockito.when(postService.list("author", 10, "abc")).thenReturn(new PageDto<>(List.of(), null));
+
+        // Execute the request and verify the response
+        mockMvc.perform(get("/posts/user/author")
+                        .param("limit", "10")
+                        .param("cursor", "abc")
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.size()").value(0))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
     }
 
     @WithMockUser(username = "testUser")
@@ -142,6 +172,72 @@ class PostControllerTest {
                 .andExpect(jsonPath("$.postFileUrl").value("https://example.com/image.jpg"));
     }
 
+    @WithMockUser(username = "testUser")
+    @Test
+    @Description("Test to serve the image of a post with its content type and ETag.")
+    void getImage_ShouldReturnImage(@TempDir Path dir) throws Exception {
+        Path image = Files.write(dir.resolve("abc-1"), GIF);
+        Mockito.when(postService.getImage("1", null)).thenReturn(CompletableFuture.completedFuture(image));
+
+        MvcResult result = mockMvc.perform(get("/posts/1/image"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/gif"))
+                .andExpect(content().bytes(GIF))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-1\""));
+    }
+
+    @WithMockUser(username = "testUser")
+    @Test
+    @Description("Test that an image file that is not an image is served as an attachment, never inline.")
+    void getImage_ShouldServeAttachment_WhenNotAnImage(@TempDir Path dir) throws Exception {
+        Path page = Files.writeString(dir.resolve("abc-1"), "<?xml version=\"1.0\"?><svg onload=\"alert(1)\"/>");
+        Mockito.when(postService.getImage("1", null)).thenReturn(CompletableFuture.completedFuture(page));
+
+        MvcResult result = mockMvc.perform(get("/posts/1/image"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/octet-stream"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment"));
+    }
+
+    @WithMockUser(username = "testUser")
+    @Test
+    @Description("Test that the image of a post is answered with 304 when the ETag matches.")
+    void getImage_ShouldReturnNotModified_WhenETagMatches(@TempDir Path dir) throws Exception {
+        Path image = Files.write(dir.resolve("abc-1"), GIF);
+        Mockito.when(postService.getImage("1", null)).thenReturn(CompletableFuture.completedFuture(image));
+
+        MvcResult result = mockMvc.perform(get("/posts/1/image").header(HttpHeaders.IF_NONE_MATCH, "\"abc-1\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotModified());
+    }
+
+    @WithMockUser(username = "testUser")
+    @Test
+    @Description("Test that a Range request for the image of a post is answered with partial content.")
+    void getImage_ShouldReturnPartialContent_WhenRangeRequested(@TempDir Path dir) throws Exception {
+        Path image = Files.write(dir.resolve("abc-1"), GIF);
+        Mockito.when(postService.getImage("1", null)).thenReturn(CompletableFuture.completedFuture(image));
+
+        MvcResult result = mockMvc.perform(get("/posts/1/image").header(HttpHeaders.RANGE, "bytes=6-9"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(new byte[]{1, 0, 1, 0}));
+    }
+
     @Test
     @Description("Test to ensure unauthorized access when attempting to create a post without authentication.")
     void createPost_ShouldReturnUnauthorizedWhenNotAuthenticated() throws Exception {
@@ -1,7 +1,9 @@
 package i.controller;
 
+import i.dto.PageDto;
 import i.dto.UserCreateRequestDto;
 import i.dto.UserDto;
+import i.dto.UserSummaryDto;
 import i.security.JwtUtils;
 import i.service.UserService;
 import org.junit.jupiter.api.Test;
@@ -69,34 +71,58 @@ class UserControllerTest {
     @Test
     @Description("Test to retrieve a list of users.")
     void getListOfUsers_ShouldReturnListOfUsers() throws Exception {
-        UserDto userDto = new UserDto();
-        userDto.setUsername("testUser");
+        UserSummaryDto userSummaryDto = new UserSummaryDto("1", "testUser", null);
 
-        Mockito.when(userService.list()).thenReturn(List.of(userDto));
+        Mockito.when(userService.list(10, "abc")).thenReturn(new PageDto<>(List.of(userSummaryDto), "next"));
 
         // Execute the request and verify the response
         mockMvc.perform(get("/users")
+                        .param("limit", "10")
+                        .param("cursor", "abc")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(1))
-                .andExpect(jsonPath("$[0].username").value("testUser"));
+                .andExpect(jsonPath("$.items.size()").value(1))
+                .andExpect(jsonPath("$.items[0].username").value("testUser"))
+                .andExpect(jsonPath("$.items[0].roles").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @WithMockUser(username = "testUser")
     @Test
     @Description("Test to retrieve a list of users by substring.")
     void getUsersBySubstring_ShouldReturnListOfUsers() throws Exception {
-        UserDto userDto = new UserDto();
-        userDto.setUsername("testUser");
+        UserSummaryDto userSummaryDto = new UserSummaryDto("1", "testUser", null);
 
-        Mockito.when(userService.getUsernamesListBySubstring("test")).thenReturn(List.of(userDto));
+        Mockito.when(userService.getUsernamesListBySubstring("test", 5)).thenReturn(List.of(userSummaryDto));
 
         // Execute the request and verify the response
         mockMvc.perform(get("/users/test")
+                        .param("limit", "5")
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value("1"))
+                .andExpect(jsonPath("$[0].username").value("testUser"))
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
+    @WithMockUser(username = "testUser")
+    @Test
+    @Description("Test to retrieve username suggestions for a misspelled username.")
+    void getSuggestions_ShouldReturnCloseUsernames() throws Exception {
+        UserSummaryDto userSummaryDto = new UserSummaryDto("1", "testUser", null);
+
+        Mockito.when(userService.suggestUsernames("tsetUser", 1, null)).thenReturn(List.of(userSummaryDto));
+
+        // Execute the request and verify the response
+        mockMvc.perform(get("/users/suggestions")
+                        .param("query", "tsetUser")
+                        .param("maxDistance", "1")
                         .contentType("application/json"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.size()").value(1))
                 .andExpect(jsonPath("$[0].username").value("testUser"));
+        Mockito.verify(userService, Mockito.never()).getUsernamesListBySubstring(any(), any());
     }
 
     @Test
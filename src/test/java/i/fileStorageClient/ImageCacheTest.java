@@ -0,0 +1,165 @@
+package i.fileStorageClient;
+
+import com.sun.net.httpserver.HttpServer;
+import i.config.WebClientConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the image cache against a local HTTP server standing in for the file storage.
+ */
+class ImageCacheTest {
+
+    private static final byte[] IMAGE = new byte[1000];
+
+    @TempDir
+    private Path dir;
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverThreads = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverThreads);
+        server.createContext("/", exchange -> {
+            fetches.incrementAndGet();
+            if (exchange.getRequestURI().getPath().startsWith("/slow")) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (exchange.getRequestURI().getPath().startsWith("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, IMAGE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(IMAGE);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        WebClientConfig config = new WebClientConfig();
+        connectionProvider = config.storageConnectionProvider(new SimpleMeterRegistry(), 10, 100,
+                Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        webClient = config.storageWebClient(config.webClientBuilder(), connectionProvider,
+                Duration.ofSeconds(1), Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        connectionProvider.dispose();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private ImageCache cache(DataSize maxSize) {
+        return new ImageCache(webClient, new SimpleMeterRegistry(), dir, maxSize, Duration.ZERO);
+    }
+
+    @Test
+    void testGet_FetchesOnceAndServesFromDisk() throws Exception {
+        ImageCache cache = cache(DataSize.ofMegabytes(1));
+
+        Path first = cache.get(baseUrl + "/a.png").get(5, TimeUnit.SECONDS);
+        Path second = cache.get(baseUrl + "/a.png").get(5, TimeUnit.SECONDS);
+
+        assertEquals(first, second);
+        assertArrayEquals(IMAGE, Files.readAllBytes(first));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void testGet_SingleFlightsConcurrentMisses() throws Exception {
+        ImageCache cache = cache(DataSize.ofMegabytes(1));
+
+        List<CompletableFuture<Path>> requests = IntStream.range(0, 20)
+                .mapToObj(i -> cache.get(baseUrl + "/slow.png"))
+                .toList();
+        release.countDown();
+
+        Path path = requests.get(0).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Path> request : requests) {
+            assertEquals(path, request.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void testGet_DoesNotCacheFailures() {
+        ImageCache cache = cache(DataSize.ofMegabytes(1));
+
+        assertThrows(ExecutionException.class, () -> cache.get(baseUrl + "/missing.png").get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> cache.get(baseUrl + "/missing.png").get(5, TimeUnit.SECONDS));
+
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void testGet_EvictsBeyondMaxSize() throws Exception {
+        // Room for two images of 1000 bytes
+        ImageCache cache = cache(DataSize.ofBytes(2500));
+
+        for (int i = 0; i < 10; i++) {
+            cache.get(baseUrl + "/" + i + ".png").get(5, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < 50 && countCached() > 2; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(countCached() <= 2);
+    }
+
+    @Test
+    void testLoad_KeepsImagesOfPreviousRun() throws Exception {
+        Path path = cache(DataSize.ofMegabytes(1)).get(baseUrl + "/a.png").get(5, TimeUnit.SECONDS);
+
+        Path reloaded = cache(DataSize.ofMegabytes(1)).get(baseUrl + "/a.png").get(5, TimeUnit.SECONDS);
+
+        assertEquals(path, reloaded);
+        assertEquals(1, fetches.get());
+    }
+
+    private long countCached() throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package i.fileStorageClient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import i.config.WebClientConfig;
+import i.repository.PostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Imgur client against a local HTTP server standing in for the Imgur API.
+ */
+class ImgurServiceTest {
+
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G'};
+
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ConnectionProvider connectionProvider;
+    private ImgurService imgurService;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverThreads = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverThreads);
+        server.createContext("/3/image", exchange -> {
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            respond(exchange, "application/json",
+                    "{\"data\":{\"link\":\"https://i.imgur.com/abc.png\"}}".getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/abc.png", exchange -> respond(exchange, "image/png", IMAGE));
+        server.createContext("/missing.png", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/slow.png", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "image/png", IMAGE);
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        WebClientConfig config = new WebClientConfig();
+        connectionProvider = config.storageConnectionProvider(meterRegistry, 2, 10,
+                Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        WebClient webClient = config.storageWebClient(config.webClientBuilder(), connectionProvider,
+                Duration.ofSeconds(1), Duration.ofMillis(300));
+
+        imgurService = new ImgurService(webClient, Mockito.mock(PostRepository.class));
+        ReflectionTestUtils.setField(imgurService, "baseUrl", baseUrl);
+        ReflectionTestUtils.setField(imgurService, "clientId", "client-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // The connection returns to the pool shortly after the response has been read
+    private void awaitIdleConnection() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Gauge idle = meterRegistry.find("storage.http.connections.idle").gauge();
+            if (idle != null && idle.value() == 1) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("The connection was not returned to the pool");
+    }
+
+    @Test
+    void testUploadImage() {
+        MockMultipartFile image = new MockMultipartFile("image", "abc.png", "image/png", IMAGE);
+
+        String url = imgurService.uploadImage(image).block(Duration.ofSeconds(5));
+
+        assertEquals("https://i.imgur.com/abc.png", url);
+        assertEquals(List.of("Client-ID client-1"), authorizations);
+    }
+
+    @Test
+    void testUploadImage_Empty() {
+        MockMultipartFile image = new MockMultipartFile("image", "abc.png", "image/png", new byte[0]);
+
+        assertThrows(IllegalArgumentException.class, () -> imgurService.uploadImage(image).block());
+        assertTrue(clientPorts.isEmpty());
+    }
+
+    @Test
+    void testGetImageByDirectUrl_ReusesConnection() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(IMAGE, imgurService.getImageByDirectUrl(baseUrl + "/abc.png"));
+            awaitIdleConnection();
+        }
+
+        // Sequential requests go over the same kept-alive connection
+        assertEquals(3, clientPorts.size());
+        assertEquals(1, clientPorts.stream().distinct().count());
+    }
+
+    @Test
+    void testGetImageByDirectUrl_NotFound() {
+        assertThrows(RuntimeException.class, () -> imgurService.getImageByDirectUrl(baseUrl + "/missing.png"));
+    }
+
+    @Test
+    void testGetImageByDirectUrl_ResponseTimeout() {
+        long start = System.nanoTime();
+
+        assertThrows(RuntimeException.class, () -> imgurService.getImageByDirectUrl(baseUrl + "/slow.png"));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(1500)) < 0);
+    }
+
+    @Test
+    void testPoolMetrics() throws InterruptedException {
+        imgurService.getImageByDirectUrl(baseUrl + "/abc.png");
+        // The response is returned before the connection is released to the pool
+        awaitIdleConnection();
+
+        Gauge max = meterRegistry.find("storage.http.connections.max").tag("pool", "storage").gauge();
+        Gauge total = meterRegistry.find("storage.http.connections.total").tag("pool", "storage").gauge();
+        Gauge active = meterRegistry.find("storage.http.connections.active").tag("pool", "storage").gauge();
+        assertNotNull(max);
+        assertEquals(2, max.value());
+        assertEquals(1, total.value());
+        assertEquals(0, active.value());
+    }
+}
@@ -0,0 +1,109 @@
+package i.fileStorageClient;
+
+import i.exception.UnsupportedImageException;
+import i.repository.PostRepository;
+import i.utils.MediaTypeUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileStorageTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0x0d};
+    private static final byte[] GIF = {'G', 'I', 'F', '8', '9', 'a', 1, 0, 1, 0};
+
+    @TempDir
+    private Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocalFileStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        storage = new LocalFileStorage(Mockito.mock(PostRepository.class), meterRegistry, root,
+                "http://localhost/api/files");
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void testUploadImage_StoresUnderDigest() throws Exception {
+        String digest = sha256(PNG);
+
+        String url = storage.uploadImage(new MockMultipartFile("image", "a.png", "image/png", PNG)).block();
+
+        assertEquals("http://localhost/api/files/" + digest, url);
+        Path stored = root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+        assertArrayEquals(PNG, Files.readAllBytes(stored));
+        assertEquals(stored, storage.find(digest).orElseThrow());
+        assertEquals(stored, storage.localPath(url).orElseThrow());
+        assertEquals(MediaType.IMAGE_PNG, MediaTypeUtils.guess(stored));
+        // No temporary file is left behind
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void testUploadImage_DeduplicatesIdenticalContent() throws Exception {
+        String first = storage.uploadImage(new MockMultipartFile("image", "a.png", "image/png", PNG)).block();
+        String second = storage.uploadImage(new ByteArrayResource(PNG)).block();
+        String other = storage.uploadImage(new ByteArrayResource(GIF)).block();
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertEquals(2, countFiles());
+        assertEquals(2, meterRegistry.counter("storage.local.writes", "result", "stored").count());
+        assertEquals(1, meterRegistry.counter("storage.local.writes", "result", "deduplicated").count());
+    }
+
+    @Test
+    void testUploadImage_Empty() {
+        MockMultipartFile image = new MockMultipartFile("image", "a.png", "image/png", new byte[0]);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.uploadImage(image).block());
+    }
+
+    @Test
+    void testUploadImage_RejectsContentThatIsNotAnImage() throws Exception {
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8);
+        byte[] svg = "<?xml version=\"1.0\"?><svg onload=\"alert(1)\"/>".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(UnsupportedImageException.class,
+                () -> storage.uploadImage(new MockMultipartFile("image", "a.png", "image/png", html)).block());
+        assertThrows(UnsupportedImageException.class, () -> storage.uploadImage(new ByteArrayResource(svg)).block());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void testFind_RejectsMalformedDigest() throws Exception {
+        storage.uploadImage(new ByteArrayResource(PNG)).block();
+
+        assertTrue(storage.find("../../etc/passwd").isEmpty());
+        assertTrue(storage.find(sha256(PNG).toUpperCase()).isEmpty());
+        assertTrue(storage.find(sha256("missing".getBytes(StandardCharsets.UTF_8))).isEmpty());
+        assertTrue(storage.localPath("https://i.imgur.com/" + sha256(PNG)).isEmpty());
+    }
+}
@@ -0,0 +1,43 @@
+package i.interceptors;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionScanDetectorTest {
+
+    @Test
+    @Description("Test that queries differing only in their values share the same shape")
+    void shapeOf_ShouldIgnoreValues() {
+        BsonDocument first = BsonDocument.parse(
+                "{ 'username': 'a', $or: [ { 'createdAt': { $lt: 1 } }, { '_id': { $in: ['x', 'y'] } } ] }");
+        BsonDocument second = BsonDocument.parse(
+                "{ 'username': 'b', $or: [ { 'createdAt': { $lt: 2 } }, { '_id': { $in: ['z'] } } ] }");
+        BsonDocument other = BsonDocument.parse("{ 'email': 'a' }");
+
+        assertEquals(CollectionScanDetector.shapeOf(first), CollectionScanDetector.shapeOf(second));
+        assertNotEquals(CollectionScanDetector.shapeOf(first), CollectionScanDetector.shapeOf(other));
+        assertEquals("{username: ?}", CollectionScanDetector.shapeOf(BsonDocument.parse("{ 'username': 'a' }")));
+    }
+
+    @Test
+    @Description("Test that a COLLSCAN stage is found anywhere in the winning plan")
+    void containsCollectionScan_ShouldFindNestedStage() {
+        Document collScan = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "SORT").append("inputStage", new Document("stage", "COLLSCAN"))));
+        Document indexScan = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "FETCH").append("inputStages", List.of(new Document("stage", "IXSCAN")))));
+
+        assertTrue(CollectionScanDetector.containsCollectionScan(collScan.get("queryPlanner")));
+        assertFalse(CollectionScanDetector.containsCollectionScan(indexScan.get("queryPlanner")));
+        assertFalse(CollectionScanDetector.containsCollectionScan(null));
+    }
+}
@@ -0,0 +1,83 @@
+package i.repository;
+
+import i.model.Conversation;
+import i.model.Message;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.Description;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationRepositoryTest {
+
+    private static final LocalDateTime SENT_AT = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private ConversationRepository repository;
+    private Message message;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ConversationRepository(mongoTemplate);
+        message = new Message();
+        message.setId("m2");
+        message.setSender("bob");
+        message.setRecipient("alice");
+        message.setContent("Hello");
+        message.setCreatedAt(SENT_AT);
+    }
+
+    @Test
+    @Description("Test that the counters are upserted without touching the last message")
+    void recordMessage_ShouldIncrementUnreadCounter() {
+        repository.recordMessage(message);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(Conversation.class));
+
+        assertEquals(new Document("_id", Conversation.idOf("bob", "alice")), query.getValue().getQueryObject());
+        Document updateObject = update.getValue().getUpdateObject();
+        assertEquals(new Document("firstUnreadCount", 1), updateObject.get("$inc"));
+        assertEquals(new Document("participants", List.of("alice", "bob")).append("secondUnreadCount", 0L),
+                updateObject.get("$setOnInsert"));
+        assertFalse(updateObject.containsKey("$set"));
+    }
+
+    @Test
+    @Description("Test that the last message is only replaced by a newer message, so out-of-order sends keep the newest")
+    void recordMessage_ShouldOnlyReplaceOlderLastMessage() {
+        repository.recordMessage(message);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Conversation.class));
+
+        Document expected = new Document("_id", Conversation.idOf("bob", "alice"))
+                .append("$and", List.of(new Document("$or", List.of(
+                        new Document("lastMessageAt", new Document("$exists", false)),
+                        new Document("lastMessageAt", new Document("$lt", SENT_AT)),
+                        new Document("lastMessageAt", SENT_AT).append("lastMessageId", new Document("$lt", "m2"))))));
+        assertEquals(expected, query.getValue().getQueryObject());
+        assertEquals(new Document("lastMessageId", "m2").append("lastSender", "bob")
+                        .append("lastMessagePreview", "Hello").append("lastMessageAt", SENT_AT),
+                update.getValue().getUpdateObject().get("$set"));
+    }
+}
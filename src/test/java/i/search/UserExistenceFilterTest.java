@@ -0,0 +1,82 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+import i.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Description;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserExistenceFilterTest {
+
+    private UserRepository userRepository;
+    private UserExistenceFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        filter = new UserExistenceFilter(userRepository, 10_000, 0.01, 100, false);
+    }
+
+    @Test
+    @Description("Test that unknown usernames are rejected without a query once the filter is loaded, when misses are trusted")
+    void exists_ShouldRejectUnknownUsernamesWithoutQuery() {
+        filter = new UserExistenceFilter(userRepository, 10_000, 0.01, 100, true);
+        filter.add(new UserSummaryDto("1", "raccoon", null));
+        filter.markLoaded();
+
+        assertFalse(filter.exists("unknown"));
+        Mockito.verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @Description("Test that a miss of the filter is confirmed with the database, for users registered on other instances")
+    void exists_ShouldConfirmMissesWithDatabase() {
+        filter.add(new UserSummaryDto("1", "raccoon", null));
+        filter.markLoaded();
+        Mockito.when(userRepository.existsByUsername("elsewhere")).thenReturn(true);
+
+        assertTrue(filter.exists("elsewhere"));
+        assertTrue(filter.exists("elsewhere"));
+        assertFalse(filter.exists("unknown"));
+        Mockito.verify(userRepository, Mockito.times(1)).existsByUsername("elsewhere");
+        Mockito.verify(userRepository).existsByUsername("unknown");
+    }
+
+    @Test
+    @Description("Test that an existing username is looked up once and then cached")
+    void exists_ShouldCacheExistingUsernames() {
+        filter.add(new UserSummaryDto("1", "raccoon", null));
+        filter.markLoaded();
+        Mockito.when(userRepository.existsByUsername("raccoon")).thenReturn(true);
+
+        assertTrue(filter.exists("raccoon"));
+        assertTrue(filter.exists("raccoon"));
+        Mockito.verify(userRepository, Mockito.times(1)).existsByUsername("raccoon");
+    }
+
+    @Test
+    @Description("Test that the database is queried while the filter is not loaded")
+    void exists_ShouldQueryWhileNotLoaded() {
+        Mockito.when(userRepository.existsByUsername("raccoon")).thenReturn(true);
+
+        assertTrue(filter.exists("raccoon"));
+        assertFalse(filter.exists("unknown"));
+        Mockito.verify(userRepository).existsByUsername("unknown");
+    }
+
+    @Test
+    @Description("Test that the filter has no false negatives and few false positives")
+    void mightContain_ShouldKeepFalsePositiveRateLow() {
+        IntStream.range(0, 10_000).forEach(i -> filter.add(new UserSummaryDto(null, "user" + i, null)));
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("user" + i)));
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("other" + i)).count();
+        assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,76 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsernameFuzzyIndexTest {
+
+    private UsernameFuzzyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UsernameFuzzyIndex();
+        for (String username : List.of("raccoon", "Raccoon", "racoon", "baccoon", "bob", "rocket_raccoon", "alice")) {
+            index.add(new UserSummaryDto(username + "-id", username, null));
+        }
+    }
+
+    @Test
+    @Description("Test that usernames within the edit distance are found, closest first")
+    void search_ShouldReturnCloseUsernamesClosestFirst() {
+        assertEquals(List.of("Raccoon", "raccoon", "baccoon", "racoon"), usernames(index.search("raccoon", 1, 10)));
+        assertEquals(List.of("racoon", "Raccoon", "raccoon"), usernames(index.search("RACON", 2, 10)));
+        assertEquals(List.of("bob"), usernames(index.search("bbo", 2, 10)));
+        assertEquals(List.of("Raccoon", "raccoon"), usernames(index.search("raccoon", 2, 2)));
+        assertTrue(index.search("zzzzzz", 2, 10).isEmpty());
+    }
+
+    @Test
+    @Description("Test that the edit distance is capped")
+    void search_ShouldCapDistance() {
+        assertTrue(index.search("alxxxe", 5, 10).isEmpty());
+        assertEquals(List.of("alice"), usernames(index.search("alxxe", 5, 10)));
+    }
+
+    @Test
+    @Description("Test that the tree returns the same users as a full scan")
+    void search_ShouldMatchFullScan() {
+        UsernameFuzzyIndex large = new UsernameFuzzyIndex();
+        Random random = new Random(42);
+        List<String> usernames = random.ints(2000, 0, 1 << 12)
+                .mapToObj(value -> Integer.toString(value, 3))
+                .distinct()
+                .toList();
+        usernames.forEach(username -> large.add(new UserSummaryDto(username, username, null)));
+
+        for (String query : List.of("1201", "22", "100000", "2102210")) {
+            List<String> expected = usernames.stream()
+                    .filter(username -> UsernameFuzzyIndex.distance(query, username, 2) <= 2)
+                    .sorted()
+                    .toList();
+            List<String> actual = usernames(large.search(query, 2, Integer.MAX_VALUE)).stream().sorted().toList();
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    @Description("Test that the bounded edit distance is exact up to the bound")
+    void distance_ShouldStopAtBound() {
+        assertEquals(0, UsernameFuzzyIndex.distance("bob", "bob", 2));
+        assertEquals(3, UsernameFuzzyIndex.distance("kitten", "sitting", 5));
+        assertEquals(3, UsernameFuzzyIndex.distance("kitten", "sitting", 2));
+        assertEquals(3, UsernameFuzzyIndex.distance("a", "abcdef", 2));
+    }
+
+    private List<String> usernames(List<UserSummaryDto> users) {
+        return users.stream().map(UserSummaryDto::getUsername).toList();
+    }
+}
@@ -0,0 +1,64 @@
+package i.search;
+
+import i.dto.UserSummaryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsernameSearchIndexTest {
+
+    private UsernameSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UsernameSearchIndex();
+        for (String username : List.of("the_raccoon", "Raccoon", "racer", "little_racc", "bob", "Rac")) {
+            index.add(new UserSummaryDto(username + "-id", username, null));
+        }
+    }
+
+    @Test
+    @Description("Test that prefix matches come first, followed by other substring matches")
+    void search_ShouldRankPrefixMatchesFirst() {
+        assertEquals(List.of("Rac", "Raccoon", "racer", "the_raccoon", "little_racc"), usernames(index.search("rac", 10)));
+        assertEquals(List.of("the_raccoon", "Raccoon"), usernames(index.search("ACCOON", 10)));
+        assertEquals(List.of("Raccoon", "the_raccoon", "little_racc"), usernames(index.search(" racc ", 10)));
+    }
+
+    @Test
+    @Description("Test that results are capped and short queries are supported")
+    void search_ShouldCapResultsAndHandleShortQueries() {
+        assertEquals(List.of("Rac", "Raccoon"), usernames(index.search("rac", 2)));
+        assertEquals(List.of("the_raccoon", "Raccoon", "bob"), usernames(index.search("o", 10)));
+        assertEquals(List.of("bob"), usernames(index.search("B", 10)));
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    @Description("Test that grams found in another order do not produce false matches")
+    void search_ShouldVerifyCandidates() {
+        index.add(new UserSummaryDto("id", "abcxbcd", null));
+
+        assertTrue(index.search("abcd", 10).isEmpty());
+        assertEquals(List.of("abcxbcd"), usernames(index.search("xbcd", 10)));
+    }
+
+    @Test
+    @Description("Test that adding an indexed user again has no effect")
+    void add_ShouldIgnoreDuplicates() {
+        index.add(new UserSummaryDto("bob-id", "bob", null));
+
+        assertEquals(6, index.size());
+        assertEquals(1, index.search("bob", 10).size());
+    }
+
+    private List<String> usernames(List<UserSummaryDto> users) {
+        return users.stream().map(UserSummaryDto::getUsername).toList();
+    }
+}
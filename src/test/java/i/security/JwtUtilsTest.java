@@ -0,0 +1,57 @@
+package i.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilsTest {
+
+    private final JwtUtils jwtUtils = new JwtUtils();
+
+    private final UserDetails user = new User("testUser", "password",
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @Test
+    @Description("Test that a token is verified once and its claims are then served from the cache")
+    void verify_ShouldReturnCachedClaimsForSameToken() {
+        String token = jwtUtils.generateToken(user);
+
+        Claims claims = jwtUtils.verify(token);
+
+        assertEquals("testUser", claims.getSubject());
+        assertSame(claims, jwtUtils.verify(token));
+        assertTrue(jwtUtils.isTokenValid(claims, user));
+        assertFalse(jwtUtils.isTokenValid(claims, new User("otherUser", "password", List.of())));
+    }
+
+    @Test
+    @Description("Test that a token with a forged signature is rejected")
+    void verify_ShouldRejectForgedToken() {
+        String token = new JwtUtils().generateToken(user);
+
+        assertThrows(JwtException.class, () -> jwtUtils.verify(token));
+    }
+
+    @Test
+    @Description("Test that the principal is rebuilt from the signed authorities claim")
+    void extractUserDetails_ShouldReadAuthoritiesClaim() {
+        Claims claims = jwtUtils.verify(jwtUtils.generateToken(user));
+
+        UserDetails details = jwtUtils.extractUserDetails(claims);
+
+        assertEquals("testUser", details.getUsername());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(details.getAuthorities()));
+    }
+}
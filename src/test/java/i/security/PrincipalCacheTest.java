@@ -0,0 +1,78 @@
+package i.security;
+
+import i.event.UserRolesChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Description;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalCacheTest {
+
+    private UserDetailsService delegate;
+    private PrincipalCache principalCache;
+
+    @BeforeEach
+    void setUp() {
+        delegate = Mockito.mock(UserDetailsService.class);
+        principalCache = new PrincipalCache(delegate, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    @Description("Test that a principal is loaded once and then served from the cache")
+    void loadUserByUsername_ShouldCachePrincipal() {
+        UserDetails user = new User("testUser", "password", List.of());
+        when(delegate.loadUserByUsername("testUser")).thenReturn(user);
+
+        assertSame(user, principalCache.loadUserByUsername("testUser"));
+        assertSame(user, principalCache.loadUserByUsername("testUser"));
+
+        verify(delegate, times(1)).loadUserByUsername("testUser");
+    }
+
+    @Test
+    @Description("Test that a role change drops the cached principal")
+    void onUserRolesChanged_ShouldReloadPrincipal() {
+        when(delegate.loadUserByUsername("testUser")).thenReturn(new User("testUser", "password", List.of()));
+
+        principalCache.loadUserByUsername("testUser");
+        principalCache.onUserRolesChanged(new UserRolesChangedEvent("testUser"));
+        principalCache.loadUserByUsername("testUser");
+
+        verify(delegate, times(2)).loadUserByUsername("testUser");
+    }
+
+    @Test
+    @Description("Test that missing users are not cached and hits and misses are counted")
+    void loadUserByUsername_ShouldNotCacheMissingUserAndRecordMetrics() {
+        when(delegate.loadUserByUsername("missing")).thenThrow(new UsernameNotFoundException("User not found"));
+        when(delegate.loadUserByUsername("testUser")).thenReturn(new User("testUser", "password", List.of()));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        principalCache.bindTo(registry);
+
+        assertThrows(UsernameNotFoundException.class, () -> principalCache.loadUserByUsername("missing"));
+        assertThrows(UsernameNotFoundException.class, () -> principalCache.loadUserByUsername("missing"));
+        principalCache.loadUserByUsername("testUser");
+        principalCache.loadUserByUsername("testUser");
+
+        verify(delegate, times(2)).loadUserByUsername("missing");
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "principals").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(3.0, registry.get("cache.gets").tag("cache", "principals").tag("result", "miss")
+                .functionCounter().count());
+    }
+}
@@ -0,0 +1,78 @@
+package i.security;
+
+import i.model.Role;
+import i.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Description;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoleCatalogTest {
+
+    private RoleRepository roleRepository;
+    private RoleCatalog roleCatalog;
+
+    @BeforeEach
+    void setUp() {
+        roleRepository = Mockito.mock(RoleRepository.class);
+        Mockito.when(roleRepository.findAll()).thenReturn(List.of(new Role("1", "ROLE_USER"), new Role("2", "ROLE_ADMIN")));
+        roleCatalog = new RoleCatalog(roleRepository);
+        roleCatalog.load();
+    }
+
+    @Test
+    @Description("Test that loaded roles are found without querying the database")
+    void findByName_ShouldReadLoadedRolesFromMemory() {
+        Role role = roleCatalog.findByName("ROLE_USER").orElseThrow();
+        role.setName("changed");
+
+        assertEquals("1", roleCatalog.findByName("ROLE_USER").orElseThrow().getId());
+        Mockito.verify(roleRepository, Mockito.never()).findByName(Mockito.anyString());
+    }
+
+    @Test
+    @Description("Test that a role missing from the catalog is looked up once and then kept")
+    void findByName_ShouldLoadMissingRoleOnce() {
+        Mockito.when(roleRepository.findByName("ROLE_EDITOR")).thenReturn(Optional.of(new Role("3", "ROLE_EDITOR")));
+        Mockito.when(roleRepository.findByName("ROLE_UNKNOWN")).thenReturn(Optional.empty());
+
+        assertEquals("3", roleCatalog.findByName("ROLE_EDITOR").orElseThrow().getId());
+        assertEquals("3", roleCatalog.findByName("ROLE_EDITOR").orElseThrow().getId());
+        assertTrue(roleCatalog.findByName("ROLE_UNKNOWN").isEmpty());
+
+        Mockito.verify(roleRepository, Mockito.times(1)).findByName("ROLE_EDITOR");
+    }
+
+    @Test
+    @Description("Test that the authorities of catalog roles are shared")
+    void authorities_ShouldBeInterned() {
+        List<GrantedAuthority> first = roleCatalog.authorities(Set.of(new Role("1", "ROLE_USER")));
+        List<GrantedAuthority> second = roleCatalog.authorities(Set.of(new Role("1", "ROLE_USER")));
+
+        assertEquals("ROLE_USER", first.get(0).getAuthority());
+        assertSame(first.get(0), second.get(0));
+        assertEquals("ROLE_OTHER", roleCatalog.authority("ROLE_OTHER").getAuthority());
+    }
+
+    @Test
+    @Description("Test that registering a role refreshes the catalog")
+    void register_ShouldReplaceRoleWithSameName() {
+        GrantedAuthority before = roleCatalog.authority("ROLE_ADMIN");
+
+        roleCatalog.register(new Role("4", "ROLE_ADMIN"));
+
+        assertEquals("4", roleCatalog.findByName("ROLE_ADMIN").orElseThrow().getId());
+        assertNotSame(before, roleCatalog.authority("ROLE_ADMIN"));
+        assertSame(roleCatalog.authority("ROLE_ADMIN"), roleCatalog.authority("ROLE_ADMIN"));
+    }
+}
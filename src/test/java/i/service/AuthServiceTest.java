@@ -1,36 +1,39 @@
 package i.service;
 
+import i.config.ModelMapperConfig;
 import i.dto.AuthenticationRequestDto;
 import i.dto.TokenDto;
-import i.dto.UserDto;
 import i.exception.EmailNotVerifiedException;
+import i.model.Role;
 import i.model.User;
 import i.repository.UserRepository;
 import i.security.JwtUtils;
+import i.security.RoleCatalog;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.modelmapper.ModelMapper;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.eq;
-import static org.mockito.Mockito.anyString;
-import static org.mockito.Mockito.doThrow;
 
 @SpringBootTest
 class AuthServiceTest {
@@ -38,12 +41,6 @@ class AuthServiceTest {
     @InjectMocks
     private AuthService authService;
 
-    @Mock
-    private AuthenticationManager authenticationManager;
-
-    @Mock
-    private UserDetailsService userDetailsService;
-
     @Mock
     private JwtUtils jwtUtils;
 
@@ -51,7 +48,13 @@ class AuthServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private PasswordEncoder passwordEncoder;
+
+    @Spy
+    private RoleCatalog roleCatalog = new RoleCatalog(null);
+
+    @Spy
+    private ModelMapper modelMapper = new ModelMapperConfig().modelMapper();
 
     @Test
     @DisplayName("Should return valid token when authentication successful")
@@ -64,48 +67,39 @@ class AuthServiceTest {
         // Create an AuthenticationRequestDto to simulate the input from the client
         AuthenticationRequestDto authRequestDto = new AuthenticationRequestDto(username, password);
 
-        // Create a mock UserDetails object representing a successful authentication
-        UserDetails userDetails = org.springframework.security.core.userdetails.User
-                .withUsername(username)
-                .password(password)
-                .roles("USER")
-                .build();
-
         // Create a mock User object returned by the UserRepository
         User mockUser = new User();
         mockUser.setUsername(username);
+        mockUser.setPassword(password);
+        mockUser.setEmail("test@example.com");
+        mockUser.setRoles(Set.of(new Role("role1", "ROLE_USER")));
         mockUser.setEmailVerified(true);
-;
-        // Create the expected UserCreateRequestDto object to map from User
-        UserDto userDto = new UserDto();
 
         // Mock the repository call to return the mock User when looking up by username
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(mockUser));
-
-        // Mock the UserDetailsService to return the mock UserDetails when the username is loaded
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
+        when(passwordEncoder.matches(password, password)).thenReturn(true);
 
         // Mock the JwtUtils to return a mock token when generateToken is called
-        when(jwtUtils.generateToken(userDetails)).thenReturn(generatedToken);
-
-        // Mock the ModelMapper to map the User object to UserCreateRequestDto
-        when(modelMapper.map(mockUser, UserDto.class)).thenReturn(userDto);
+        when(jwtUtils.generateToken(any(UserDetails.class))).thenReturn(generatedToken);
 
         // Act: Call the service method to get the token
         TokenDto result = authService.token(authRequestDto);
 
         // Assert: Check that the returned token and user information are as expected
         assertEquals(generatedToken, result.getToken());  // Ensure the token matches the mocked token
-        assertEquals(userDto, result.getUser());  // Ensure the UserCreateRequestDto matches the mock
-
-        // Verify that the mock methods were called exactly once with the correct arguments
-        verify(authenticationManager, times(1)).authenticate(
-                new UsernamePasswordAuthenticationToken(username, password)  // Check that the authentication was attempted with the correct credentials
-        );
-        verify(userDetailsService, times(1)).loadUserByUsername(username);  // Ensure the user details were loaded
-        verify(jwtUtils, times(1)).generateToken(userDetails);  // Ensure a token was generated for the user
-        verify(userRepository, times(1)).findByUsername(username);  // Ensure the user repository was queried for the username
-        verify(modelMapper, times(1)).map(mockUser, UserDto.class);  // Ensure the User object was mapped correctly
+        assertEquals(mockUser.getId(), result.getUser().getId());
+        assertEquals(username, result.getUser().getUsername());
+        assertEquals("test@example.com", result.getUser().getEmail());
+        assertEquals("ROLE_USER", result.getUser().getRoles().iterator().next().getName());
+        assertEquals(mockUser.getCreatedAt(), result.getUser().getCreatedAt());
+        assertTrue(result.getUser().isEmailVerified());
+
+        // Verify that the user was loaded exactly once and the token carries its roles
+        verify(userRepository, times(1)).findByUsername(username);
+        ArgumentCaptor<UserDetails> userDetails = ArgumentCaptor.forClass(UserDetails.class);
+        verify(jwtUtils, times(1)).generateToken(userDetails.capture());
+        assertEquals(username, userDetails.getValue().getUsername());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(userDetails.getValue().getAuthorities()));
     }
 
     @Test
@@ -116,22 +110,35 @@ class AuthServiceTest {
         String password = "wrongPass";
         AuthenticationRequestDto authRequestDto = new AuthenticationRequestDto(username, password);
 
-        // Mock the AuthenticationManager to throw BadCredentialsException
-        doThrow(new BadCredentialsException("Bad credentials"))
-                .when(authenticationManager)
-                .authenticate(new UsernamePasswordAuthenticationToken(username, password));
+        User mockUser = new User();
+        mockUser.setUsername(username);
+        mockUser.setPassword("testPass");
+        mockUser.setEmailVerified(true);
+
+        // Mock the password check to fail
+        when(userRepository.findByUsername(username)).thenReturn(Optional.of(mockUser));
+        when(passwordEncoder.matches(password, "testPass")).thenReturn(false);
 
         // Act & Assert: Ensure the token method throws the correct exception
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.token(authRequestDto));
+        RuntimeException exception = assertThrows(BadCredentialsException.class, () -> authService.token(authRequestDto));
 
         // Check the exception message
         assertEquals("Bad credentials", exception.getMessage());
 
-        // Verify that no other methods are called after authentication failure
-        verify(userDetailsService, never()).loadUserByUsername(anyString());
-        verify(userRepository, never()).findByUsername(anyString());
+        // Verify that no token is generated after authentication failure
+        verify(jwtUtils, never()).generateToken(any());
+    }
+
+    @Test
+    @DisplayName("Should throw BadCredentialsException when the user does not exist")
+    void shouldThrowBadCredentialsExceptionWhenUserNotFound() {
+        AuthenticationRequestDto authRequestDto = new AuthenticationRequestDto("unknown", "testPass");
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(BadCredentialsException.class, () -> authService.token(authRequestDto));
+
+        assertEquals("Bad credentials", exception.getMessage());
         verify(jwtUtils, never()).generateToken(any());
-        verify(modelMapper, never()).map(any(), eq(UserDto.class));
     }
 
     @Test
@@ -143,23 +150,14 @@ class AuthServiceTest {
 
         AuthenticationRequestDto authRequestDto = new AuthenticationRequestDto(username, password);
 
-        UserDetails userDetails = org.springframework.security.core.userdetails.User
-                .withUsername(username)
-                .password(password)
-                .roles("USER")
-                .build();
-
         User mockUser = new User();
         mockUser.setUsername(username);
+        mockUser.setPassword(password);
         mockUser.setEmailVerified(false);  // Email is not verified
 
-        // Mock authentication to pass
-        when(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password)))
-                .thenReturn(null);
-
-        // Mock UserDetailsService and UserRepository behavior
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
+        // Mock the user lookup and the password check to pass
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(mockUser));
+        when(passwordEncoder.matches(password, password)).thenReturn(true);
 
         // Act & Assert: Ensure EmailNotVerifiedException is thrown
         EmailNotVerifiedException exception = assertThrows(
@@ -171,14 +169,10 @@ class AuthServiceTest {
         assertEquals("Email not verified", exception.getMessage());
 
         // Verify interactions
-        verify(authenticationManager, times(1)).authenticate(
-                new UsernamePasswordAuthenticationToken(username, password));
-        verify(userDetailsService, times(1)).loadUserByUsername(username);
         verify(userRepository, times(1)).findByUsername(username);
 
-        // Ensure no interactions with JwtUtils and ModelMapper since exception was thrown
+        // Ensure no interactions with JwtUtils since exception was thrown
         verify(jwtUtils, never()).generateToken(any());
-        verify(modelMapper, never()).map(any(), eq(UserDto.class));
     }
 
 }
@@ -3,21 +3,25 @@ package i.service;
 import i.dto.CommentCreateRequestDto;
 import i.dto.CommentCreateResponseDto;
 import i.dto.CommentDto;
+import i.dto.CommentNodeDto;
+import i.dto.PageDto;
 import i.exception.CommentNotFoundException;
 import i.exception.MessageOrPostNotFoundException;
 import i.model.Comment;
-import i.model.Post;
+import i.model.ItemType;
 import i.repository.CommentRepository;
-import i.repository.MessageRepository;
-import i.repository.PostRepository;
+import i.repository.ItemRepository;
+import i.utils.CursorUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
@@ -34,6 +38,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.never;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,10 +48,7 @@ class CommentServiceTest {
     private CommentRepository commentRepository;
 
     @Mock
-    private PostRepository postRepository;
-
-    @Mock
-    private MessageRepository messageRepository;
+    private ItemRepository itemRepository;
 
     @Mock
     private ModelMapper modelMapper;
@@ -56,12 +58,12 @@ class CommentServiceTest {
 
     private CommentCreateRequestDto requestDto;
     private Comment comment;
-    private Post post;
 
     @BeforeEach
     void setUp() {
         requestDto = new CommentCreateRequestDto();
         requestDto.setItemId("post1");
+        requestDto.setItemType(ItemType.POST);
         requestDto.setContent("Test comment");
 
         comment = new Comment();
@@ -71,21 +73,19 @@ class CommentServiceTest {
         comment.setUsername("user1");
         comment.setParentCommentId(null);
         comment.setCreatedAt(LocalDateTime.now());
-
-        post = new Post();
-        post.setId("post1");
     }
 
     @Test
     @DisplayName("Should successfully create a comment when post exists")
     void createComment_success() {
         // Mock repository responses
-        when(postRepository.findById("post1")).thenReturn(Optional.of(post));
+        when(itemRepository.exists(ItemType.POST, "post1")).thenReturn(true);
         when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
             Comment savedComment = invocation.getArgument(0);
             savedComment.setId("comment1");
             return savedComment;
         });
+        when(itemRepository.attachComment(ItemType.POST, "post1", "comment1")).thenReturn(true);
 
         // Mock ModelMapper mapping
         CommentCreateResponseDto mockedResponse = new CommentCreateResponseDto(
@@ -103,23 +103,61 @@ class CommentServiceTest {
         assertEquals("user1", response.getUsername(), "The username should be 'user1'");
         assertNull(response.getParentCommentId(), "The parent comment ID should be null");
 
-        // Verify interactions with repositories
-        verify(postRepository).findById("post1");
+        // Verify interactions with repositories: only the posts collection is touched
+        ArgumentCaptor<Comment> savedComment = ArgumentCaptor.forClass(Comment.class);
+        verify(commentRepository).save(savedComment.capture());
+        assertEquals(ItemType.POST, savedComment.getValue().getType(), "The item type should be stored on the comment");
+        verify(itemRepository).attachComment(ItemType.POST, "post1", "comment1");
+        verify(itemRepository, never()).exists(eq(ItemType.MESSAGE), anyString());
+        verify(itemRepository, never()).attachComment(eq(ItemType.MESSAGE), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should look the item up only in the messages collection for MESSAGE comments")
+    void createComment_message_attachesToMessage() {
+        requestDto.setItemType(ItemType.MESSAGE);
+        when(itemRepository.exists(ItemType.MESSAGE, "post1")).thenReturn(true);
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(itemRepository.attachComment(eq(ItemType.MESSAGE), eq("post1"), any())).thenReturn(true);
+
+        commentService.createComment(requestDto, "user1");
+
+        verify(itemRepository).attachComment(eq(ItemType.MESSAGE), eq("post1"), any());
+        verify(itemRepository, never()).exists(eq(ItemType.POST), anyString());
         verify(commentRepository).save(any(Comment.class));
     }
 
     @Test
-    @DisplayName("Should throw MessageOrPostNotFoundException when post and message are not found")
+    @DisplayName("Should throw MessageOrPostNotFoundException when the item is not found")
     void createComment_itemNotFound_throwsException() {
-        when(postRepository.findById("post1")).thenReturn(Optional.empty());
-        when(messageRepository.findById("post1")).thenReturn(Optional.empty());
+        when(itemRepository.exists(ItemType.POST, "post1")).thenReturn(false);
 
         // Assert that the exception is thrown
         assertThrows(MessageOrPostNotFoundException.class,
                 () -> commentService.createComment(requestDto, "user1"));
 
-        // Ensure that the comment is not saved when the post is not found
+        // Ensure that the comment is neither saved nor attached when the post is not found
         verify(commentRepository, never()).save(any());
+        verify(itemRepository, never()).attachComment(any(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should delete the saved comment and throw when the item is deleted before the comment is attached")
+    void createComment_itemDeletedConcurrently_deletesCommentAndThrows() {
+        when(itemRepository.exists(ItemType.POST, "post1")).thenReturn(true);
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
+            Comment savedComment = invocation.getArgument(0);
+            savedComment.setId("comment1");
+            return savedComment;
+        });
+        when(itemRepository.attachComment(ItemType.POST, "post1", "comment1")).thenReturn(false);
+
+        assertThrows(MessageOrPostNotFoundException.class,
+                () -> commentService.createComment(requestDto, "user1"));
+
+        // No orphaned comment is left behind
+        verify(commentRepository).deleteById("comment1");
+        verify(modelMapper, never()).map(any(Comment.class), eq(CommentCreateResponseDto.class));
     }
 
     @Test
@@ -150,33 +188,55 @@ class CommentServiceTest {
     }
 
     @Test
-    @DisplayName("Should list all comments by post ID")
+    @DisplayName("Should list the first page of comments by post ID")
     void listCommentsByPostId_success() {
-        when(commentRepository.findByItemId("post1")).thenReturn(Collections.singletonList(comment));
+        when(commentRepository.findByItemIdOrderByCreatedAtAscIdAsc(eq("post1"), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(comment));
         when(modelMapper.map(comment, CommentDto.class)).thenReturn(new CommentDto("comment1", "post1", "Test comment", "user1", null, comment.getCreatedAt().toString()));
 
         // Call the service method
-        List<CommentDto> comments = commentService.listCommentsByPostId("post1");
+        PageDto<CommentDto> comments = commentService.listCommentsByPostId("post1", null, null);
 
         // Verify the result
-        assertNotNull(comments, "The comments list should not be null");
-        assertEquals(1, comments.size(), "There should be 1 comment in the list");
-        assertEquals("comment1", comments.get(0).getId(), "The comment ID should be 'comment1'");
-        assertEquals("post1", comments.get(0).getItemId(), "The item ID should be 'post1'");
-        assertEquals("Test comment", comments.get(0).getContent(), "The content should be 'Test comment'");
+        assertNotNull(comments, "The comments page should not be null");
+        assertEquals(1, comments.getItems().size(), "There should be 1 comment in the page");
+        assertEquals("comment1", comments.getItems().get(0).getId(), "The comment ID should be 'comment1'");
+        assertEquals("post1", comments.getItems().get(0).getItemId(), "The item ID should be 'post1'");
+        assertEquals("Test comment", comments.getItems().get(0).getContent(), "The content should be 'Test comment'");
+        assertNull(comments.getNextCursor(), "There should be no next page");
     }
 
     @Test
-    @DisplayName("Should return empty list when no comments are found for the post")
+    @DisplayName("Should continue listing comments by post ID after the cursor")
+    void listCommentsByPostId_withCursor_returnsNextCursor() {
+        Comment next = new Comment();
+        next.setId("comment2");
+        next.setItemId("post1");
+        next.setCreatedAt(comment.getCreatedAt().plusSeconds(1));
+        String cursor = CursorUtils.encode(comment.getCreatedAt().minusSeconds(1), "comment0");
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        when(commentRepository.findPageByItemIdAfter(eq("post1"), eq(comment.getCreatedAt().minusSeconds(1)),
+                eq("comment0"), pageable.capture())).thenReturn(List.of(comment, next));
+
+        PageDto<CommentDto> comments = commentService.listCommentsByPostId("post1", 1, cursor);
+
+        assertEquals(2, pageable.getValue().getPageSize(), "One extra comment should be fetched");
+        assertEquals(1, comments.getItems().size(), "The extra comment should not be returned");
+        assertEquals(CursorUtils.encode(comment.getCreatedAt(), "comment1"), comments.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should return empty page when no comments are found for the post")
     void listCommentsByPostId_noComments_returnsEmptyList() {
-        when(commentRepository.findByItemId("post1")).thenReturn(Collections.emptyList());
+        when(commentRepository.findByItemIdOrderByCreatedAtAscIdAsc(eq("post1"), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
 
         // Call the service method
-        List<CommentDto> comments = commentService.listCommentsByPostId("post1");
+        PageDto<CommentDto> comments = commentService.listCommentsByPostId("post1", null, null);
 
         // Verify the result
-        assertNotNull(comments, "The comments list should not be null");
-        assertTrue(comments.isEmpty(), "The comments list should be empty");
+        assertNotNull(comments, "The comments page should not be null");
+        assertTrue(comments.getItems().isEmpty(), "The comments page should be empty");
     }
 
     @Test
@@ -200,7 +260,8 @@ class CommentServiceTest {
         comment2.setCreatedAt(LocalDateTime.now());
 
         // Mock the repository response
-        when(commentRepository.findByUsername("user1")).thenReturn(List.of(comment1, comment2));
+        when(commentRepository.findByUsernameOrderByCreatedAtDescIdDesc(eq("user1"), any(Pageable.class)))
+                .thenReturn(List.of(comment1, comment2));
 
         // Mock ModelMapper mapping
         CommentDto commentDto1 = new CommentDto("comment1", "post1", "Test comment 1", "user1", null, comment1.getCreatedAt().toString());
@@ -209,27 +270,126 @@ class CommentServiceTest {
         when(modelMapper.map(comment2, CommentDto.class)).thenReturn(commentDto2);
 
         // Call the service method
-        List<CommentDto> comments = commentService.getCommentForUserByUserId("user1");
+        PageDto<CommentDto> comments = commentService.getCommentForUserByUserId("user1", null, null);
 
         // Verify the result
-        assertNotNull(comments, "The comments list should not be null");
-        assertEquals(2, comments.size(), "There should be 2 comments for 'user1'");
-        assertEquals("comment1", comments.get(0).getId(), "The first comment ID should be 'comment1'");
-        assertEquals("comment2", comments.get(1).getId(), "The second comment ID should be 'comment2'");
+        assertNotNull(comments, "The comments page should not be null");
+        assertEquals(2, comments.getItems().size(), "There should be 2 comments for 'user1'");
+        assertEquals("comment1", comments.getItems().get(0).getId(), "The first comment ID should be 'comment1'");
+        assertEquals("comment2", comments.getItems().get(1).getId(), "The second comment ID should be 'comment2'");
     }
 
     @Test
-    @DisplayName("Should return empty list when no comments are found for the user")
+    @DisplayName("Should return empty page when no comments are found for the user")
     void getCommentForUserByUserId_noComments_returnsEmptyList() {
         // Mock the repository response
-        when(commentRepository.findByUsername("user1")).thenReturn(Collections.emptyList());
+        when(commentRepository.findByUsernameOrderByCreatedAtDescIdDesc(eq("user1"), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
 
         // Call the service method
-        List<CommentDto> comments = commentService.getCommentForUserByUserId("user1");
+        PageDto<CommentDto> comments = commentService.getCommentForUserByUserId("user1", null, null);
 
         // Verify the result
-        assertNotNull(comments, "The comments list should not be null");
-        assertTrue(comments.isEmpty(), "The comments list should be empty");
+        assertNotNull(comments, "The comments page should not be null");
+        assertTrue(comments.getItems().isEmpty(), "The comments page should be empty");
+    }
+
+    @Test
+    @DisplayName("Should build the nested comment tree from one query")
+    void getCommentTree_buildsNestedTree() {
+        LocalDateTime now = LocalDateTime.now();
+        Comment root = treeComment("root", null, now);
+        Comment reply = treeComment("reply", "root", now.plusSeconds(1));
+        Comment nested = treeComment("nested", "reply", now.plusSeconds(2));
+        Comment secondRoot = treeComment("root2", null, now.plusSeconds(3));
+        when(commentRepository.findByItemIdOrderByCreatedAtAscIdAsc("post1"))
+                .thenReturn(List.of(root, reply, nested, secondRoot));
+
+        PageDto<CommentNodeDto> tree = commentService.getCommentTree("post1", null, null, null);
+
+        assertEquals(2, tree.getItems().size(), "There should be 2 top-level comments");
+        assertNull(tree.getNextCursor(), "All top-level comments should fit in one page");
+        CommentNodeDto rootNode = tree.getItems().get(0);
+        assertEquals("root", rootNode.getId());
+        assertEquals(1, rootNode.getReplyCount());
+        assertEquals("reply", rootNode.getReplies().get(0).getId());
+        assertEquals("nested", rootNode.getReplies().get(0).getReplies().get(0).getId());
+        assertTrue(tree.getItems().get(1).getReplies().isEmpty(), "The second root should have no replies");
+        verify(commentRepository).findByItemIdOrderByCreatedAtAscIdAsc("post1");
+    }
+
+    @Test
+    @DisplayName("Should cut the comment tree at the maximum depth and number of children")
+    void getCommentTree_appliesCutoffs() {
+        LocalDateTime now = LocalDateTime.now();
+        Comment root = treeComment("root", null, now);
+        Comment reply1 = treeComment("reply1", "root", now.plusSeconds(1));
+        Comment reply2 = treeComment("reply2", "root", now.plusSeconds(2));
+        Comment nested = treeComment("nested", "reply1", now.plusSeconds(3));
+        Comment secondRoot = treeComment("root2", null, now.plusSeconds(4));
+        when(commentRepository.findByItemIdOrderByCreatedAtAscIdAsc("post1"))
+                .thenReturn(List.of(root, reply1, reply2, nested, secondRoot));
+
+        PageDto<CommentNodeDto> tree = commentService.getCommentTree("post1", 2, 1, null);
+
+        assertEquals(1, tree.getItems().size(), "Only one top-level comment should be returned");
+        assertEquals(CursorUtils.encode(root.getCreatedAt(), "root"), tree.getNextCursor());
+
+        CommentNodeDto rootNode = tree.getItems().get(0);
+        assertEquals(2, rootNode.getReplyCount());
+        assertEquals(1, rootNode.getReplies().size());
+        assertTrue(rootNode.isHasMoreReplies());
+        assertEquals(CursorUtils.encode(reply1.getCreatedAt(), "reply1"), rootNode.getRepliesCursor());
+
+        CommentNodeDto replyNode = rootNode.getReplies().get(0);
+        assertTrue(replyNode.getReplies().isEmpty(), "Replies below the maximum depth should be cut off");
+        assertEquals(1, replyNode.getReplyCount());
+        assertTrue(replyNode.isHasMoreReplies());
+        assertNull(replyNode.getRepliesCursor());
+
+        // The next page starts after the cursor
+        PageDto<CommentNodeDto> nextPage = commentService.getCommentTree("post1", 2, 1, tree.getNextCursor());
+        assertEquals("root2", nextPage.getItems().get(0).getId());
+        assertNull(nextPage.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should continue the replies of a comment after the cursor")
+    void listReplies_continuesAfterCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        Comment root = treeComment("root", null, now);
+        Comment reply1 = treeComment("reply1", "root", now.plusSeconds(1));
+        Comment reply2 = treeComment("reply2", "root", now.plusSeconds(2));
+        when(commentRepository.findById("root")).thenReturn(Optional.of(root));
+        when(commentRepository.findByItemIdOrderByCreatedAtAscIdAsc("post1"))
+                .thenReturn(List.of(root, reply1, reply2));
+
+        PageDto<CommentNodeDto> replies = commentService.listReplies("root", null, null,
+                CursorUtils.encode(reply1.getCreatedAt(), "reply1"));
+
+        assertEquals(1, replies.getItems().size());
+        assertEquals("reply2", replies.getItems().get(0).getId());
+        assertNull(replies.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should throw CommentNotFoundException when listing replies of a missing comment")
+    void listReplies_notFound_throwsException() {
+        when(commentRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(CommentNotFoundException.class,
+                () -> commentService.listReplies("missing", null, null, null));
+    }
+
+    private Comment treeComment(String id, String parentCommentId, LocalDateTime createdAt) {
+        Comment treeComment = new Comment();
+        treeComment.setId(id);
+        treeComment.setItemId("post1");
+        treeComment.setContent("Comment " + id);
+        treeComment.setUsername("user1");
+        treeComment.setParentCommentId(parentCommentId);
+        treeComment.setCreatedAt(createdAt);
+        return treeComment;
     }
 
 }
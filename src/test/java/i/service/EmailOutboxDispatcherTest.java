@@ -0,0 +1,141 @@
+package i.service;
+
+import i.model.EmailOutboxEntry;
+import i.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private EmailOutboxRepository outboxRepository;
+
+    private FakeMailSink mailSink;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        mailSink = new FakeMailSink();
+        meterRegistry = new SimpleMeterRegistry();
+        EmailService emailService = new EmailService(mailSink, outboxRepository);
+        dispatcher = new EmailOutboxDispatcher(outboxRepository, emailService, meterRegistry,
+                10, 2, 3, Duration.ofSeconds(30), Duration.ofHours(1), Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should send every claimed entry and mark it as sent")
+    void dispatch_sendsClaimedEntries() {
+        EmailOutboxEntry first = entry("first@example.com", 1);
+        EmailOutboxEntry second = entry("second@example.com", 1);
+        when(outboxRepository.claimNext(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(first), Optional.of(second), Optional.empty());
+
+        dispatcher.dispatch();
+
+        assertEquals(2, mailSink.sent.size(), "Both emails should reach the mail server");
+        verify(outboxRepository).markSent(eq(first.getId()), any(LocalDateTime.class));
+        verify(outboxRepository).markSent(eq(second.getId()), any(LocalDateTime.class));
+        assertEquals(2.0, meterRegistry.get("email.outbox.deliveries").tag("status", "sent").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should schedule a retry with backoff when delivery fails")
+    void dispatch_retriesFailedDelivery() {
+        mailSink.failing = true;
+        EmailOutboxEntry entry = entry("user@example.com", 2);
+        when(outboxRepository.claimNext(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(entry), Optional.empty());
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        // Second attempt failed: the delay is the initial backoff doubled once, plus jitter
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).markRetry(eq(entry.getId()), nextAttemptAt.capture(), anyString());
+        assertTrue(!nextAttemptAt.getValue().isBefore(before.plusSeconds(60)));
+        assertTrue(nextAttemptAt.getValue().isBefore(LocalDateTime.now().plusSeconds(73)));
+        verify(outboxRepository, never()).markSent(anyString(), any());
+        assertEquals(1.0, meterRegistry.get("email.outbox.deliveries").tag("status", "retried").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should give up after the last attempt fails")
+    void dispatch_failsAfterMaxAttempts() {
+        mailSink.failing = true;
+        EmailOutboxEntry entry = entry("user@example.com", 3);
+        when(outboxRepository.claimNext(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(entry), Optional.empty());
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository).markFailed(eq(entry.getId()), anyString());
+        verify(outboxRepository, never()).markRetry(anyString(), any(), anyString());
+        assertEquals(1.0, meterRegistry.get("email.outbox.deliveries").tag("status", "failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should cap the backoff at the maximum delay")
+    void backoff_isCapped() {
+        Duration backoff = dispatcher.backoff(40);
+
+        assertTrue(backoff.compareTo(Duration.ofHours(1)) >= 0);
+        assertTrue(backoff.compareTo(Duration.ofMinutes(72)) <= 0);
+    }
+
+    private EmailOutboxEntry entry(String recipient, int attempts) {
+        EmailOutboxEntry entry = new EmailOutboxEntry();
+        entry.setRecipient(recipient);
+        entry.setSubject("Subject");
+        entry.setText("Text");
+        entry.setAttempts(attempts);
+        return entry;
+    }
+
+    /**
+     * Local SMTP sink: records the messages instead of sending them, or fails on demand.
+     */
+    private static class FakeMailSink extends JavaMailSenderImpl {
+        private final List<SimpleMailMessage> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+            if (failing) {
+                throw new MailSendException("Connection refused");
+            }
+            sent.addAll(List.of(simpleMessages));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package i.service;
+
+import i.fileStorageClient.FileStorage;
+import i.model.ImageRendition;
+import i.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import reactor.core.publisher.Mono;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageRenditionGeneratorTest {
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private PostRepository postRepository;
+
+    private final Map<String, byte[]> stored = new ConcurrentHashMap<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ImageRenditionGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        generator = new ImageRenditionGenerator(fileStorage, postRepository, meterRegistry,
+                List.of(1080, 160, 480), 0.85f, 10_000_000, 10, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+    }
+
+    private void storeUploads() {
+        when(fileStorage.uploadImage(any(Resource.class))).thenAnswer(invocation -> {
+            Resource resource = invocation.getArgument(0);
+            stored.put(resource.getFilename(), resource.getContentAsByteArray());
+            return Mono.just("http://files/" + resource.getFilename());
+        });
+    }
+
+    private static Resource image(int width, int height, int type, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, 0, Color.RED.getRGB());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return new ByteArrayResource(out.toByteArray());
+    }
+
+    private BufferedImage read(String filename) throws IOException {
+        return ImageIO.read(new java.io.ByteArrayInputStream(stored.get(filename)));
+    }
+
+    @Test
+    @DisplayName("Should store a JPEG rendition for every configured width, smallest first")
+    void generate_storesRenditionsOfEveryWidth() throws Exception {
+        storeUploads();
+
+        List<ImageRendition> renditions = generator.generate("post-1",
+                image(2000, 1000, BufferedImage.TYPE_INT_RGB, "jpeg"));
+
+        assertEquals(List.of(
+                new ImageRendition(160, 80, "http://files/post-1-160.jpg"),
+                new ImageRendition(480, 240, "http://files/post-1-480.jpg"),
+                new ImageRendition(1080, 540, "http://files/post-1-1080.jpg")), renditions);
+        BufferedImage thumbnail = read("post-1-160.jpg");
+        assertEquals(160, thumbnail.getWidth());
+        assertEquals(80, thumbnail.getHeight());
+    }
+
+    @Test
+    @DisplayName("Should not upscale: widths at or above the width of the image are skipped")
+    void generate_skipsWidthsNotSmallerThanImage() throws Exception {
+        storeUploads();
+
+        List<ImageRendition> renditions = generator.generate("post-1",
+                image(480, 300, BufferedImage.TYPE_INT_RGB, "png"));
+
+        assertEquals(1, renditions.size());
+        assertEquals(160, renditions.get(0).getWidth());
+        assertEquals(100, renditions.get(0).getHeight());
+    }
+
+    @Test
+    @DisplayName("Should keep transparency by storing PNG renditions of images with alpha")
+    void generate_keepsTransparencyAsPng() throws Exception {
+        storeUploads();
+
+        List<ImageRendition> renditions = generator.generate("post-1",
+                image(600, 600, BufferedImage.TYPE_INT_ARGB, "png"));
+
+        assertEquals("http://files/post-1-160.png", renditions.get(0).getUrl());
+        assertTrue(read("post-1-160.png").getColorModel().hasAlpha());
+    }
+
+    @Test
+    @DisplayName("Should record the renditions on the post")
+    void process_recordsRenditions() throws Exception {
+        storeUploads();
+
+        generator.process("post-1", image(500, 250, BufferedImage.TYPE_INT_RGB, "png"));
+
+        verify(postRepository).setRenditions("post-1", List.of(
+                new ImageRendition(160, 80, "http://files/post-1-160.jpg"),
+                new ImageRendition(480, 240, "http://files/post-1-480.jpg")));
+        assertEquals(1, meterRegistry.counter("posts.image-renditions", "status", "generated").count());
+    }
+
+    @Test
+    @DisplayName("Should refuse images with more pixels than the limit without decoding them")
+    void process_refusesTooLargeImages() throws Exception {
+        generator = new ImageRenditionGenerator(fileStorage, postRepository, meterRegistry,
+                List.of(160), 0.85f, 1000, 10, 1);
+
+        generator.process("post-1", image(100, 100, BufferedImage.TYPE_INT_RGB, "png"));
+
+        verify(fileStorage, never()).uploadImage(any(Resource.class));
+        verify(postRepository, never()).setRenditions(anyString(), anyList());
+        assertEquals(1, meterRegistry.counter("posts.image-renditions", "status", "failed").count());
+    }
+
+    @Test
+    @DisplayName("Should count content that is not an image as failed")
+    void process_failsOnUnsupportedContent() {
+        generator.process("post-1", new ByteArrayResource("not an image".getBytes()));
+
+        verify(postRepository, never()).setRenditions(anyString(), anyList());
+        assertEquals(1, meterRegistry.counter("posts.image-renditions", "status", "failed").count());
+    }
+
+    @Test
+    @DisplayName("Should skip accepted images that ImageIO cannot read, such as WebP, without counting a failure")
+    void process_skipsImagesWithoutReader() {
+        byte[] webp = {'R', 'I', 'F', 'F', 0x24, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', ' '};
+
+        generator.process("post-1", new ByteArrayResource(webp));
+
+        verify(postRepository, never()).setRenditions(anyString(), anyList());
+        assertEquals(1, meterRegistry.counter("posts.image-renditions", "status", "skipped").count());
+        assertEquals(0, meterRegistry.counter("posts.image-renditions", "status", "failed").count());
+    }
+
+    @Test
+    @DisplayName("Should release the image once its renditions are done, and right away when the queue is full")
+    void submit_releasesImage() throws Exception {
+        generator = new ImageRenditionGenerator(fileStorage, postRepository, meterRegistry,
+                List.of(160), 0.85f, 10_000_000, 1, 1);
+        CountDownLatch released = new CountDownLatch(3);
+        CountDownLatch blocked = new CountDownLatch(1);
+        Resource blocking = new ByteArrayResource(new byte[0]) {
+            @Override
+            public java.io.InputStream getInputStream() throws IOException {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getInputStream();
+            }
+        };
+
+        // The only worker is busy and the only queue slot is taken
+        assertTrue(generator.submit("post-1", blocking, released::countDown));
+        assertTrue(generator.submit("post-2", blocking, released::countDown));
+        assertFalse(generator.submit("post-3", blocking, released::countDown));
+        assertEquals(2, released.getCount());
+
+        blocked.countDown();
+        assertTrue(released.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should halve large images step by step down to the exact target size")
+    void scale_reachesExactSize() {
+        BufferedImage scaled = ImageRenditionGenerator.scale(new BufferedImage(4000, 3000, BufferedImage.TYPE_3BYTE_BGR), 160);
+
+        assertEquals(160, scaled.getWidth());
+        assertEquals(120, scaled.getHeight());
+        assertFalse(scaled.getColorModel().hasAlpha());
+    }
+}
@@ -1,17 +1,28 @@
 package i.service;
 
+import i.dto.ConversationDto;
 import i.dto.MessageDto;
+import i.dto.PageDto;
+import i.dto.UnreadCountDto;
+import i.event.MessageSentEvent;
+import i.event.MessagesReadEvent;
 import i.exception.MessageAccessDeniedException;
+import i.model.Conversation;
 import i.model.Message;
+import i.repository.ConversationRepository;
 import i.repository.MessageRepository;
-import i.repository.UserRepository;
+import i.repository.UnreadCounterRepository;
+import i.search.UserExistenceFilter;
+import i.utils.CursorUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Description;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -21,6 +32,10 @@ import org.junit.jupiter.api.Assertions;
 
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 class MessageServiceTest {
 
@@ -28,11 +43,20 @@ class MessageServiceTest {
     private MessageRepository messageRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserExistenceFilter userExistenceFilter;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private UnreadCounterRepository unreadCounterRepository;
 
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private MessageService messageService;
 
@@ -51,15 +75,15 @@ class MessageServiceTest {
         testMessage.setContent("Hello, world!");
         testMessage.setCreatedAt(LocalDateTime.now());
         testMessage.setCommentIds(new HashSet<>());
-        testMessageDto = new MessageDto("1", "sender", "recipient", "Hello, world!", LocalDateTime.now(), null);
+        testMessageDto = new MessageDto("1", "sender", "recipient", "Hello, world!", LocalDateTime.now(), null, null);
     }
 
     @Test
     @Description("Should return a MessageDto when the sender and recipient are valid.")
     void sendMessage_ShouldReturnMessageDto_WhenValidSenderAndRecipient() {
         // Arrange
-        when(userRepository.existsByUsername("sender")).thenReturn(true);
-        when(userRepository.existsByUsername("recipient")).thenReturn(true);
+        when(userExistenceFilter.exists("sender")).thenReturn(true);
+        when(userExistenceFilter.exists("recipient")).thenReturn(true);
         when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
         when(modelMapper.map(testMessage, MessageDto.class)).thenReturn(testMessageDto);
 
@@ -72,14 +96,17 @@ class MessageServiceTest {
         Assertions.assertEquals("sender", result.getSender());
         Assertions.assertEquals("recipient", result.getRecipient());
         Assertions.assertEquals("Hello, world!", result.getContent());
+        verify(conversationRepository).recordMessage(testMessage);
+        verify(unreadCounterRepository).increment("recipient");
+        verify(eventPublisher).publishEvent(new MessageSentEvent(testMessageDto));
     }
 
     @Test
     @Description("Should throw an exception when the sender is not found.")
     void sendMessage_ShouldThrowException_WhenSenderNotFound() {
         // Arrange
-        when(userRepository.existsByUsername("sender")).thenReturn(false);
-        when(userRepository.existsByUsername("recipient")).thenReturn(true);
+        when(userExistenceFilter.exists("sender")).thenReturn(false);
+        when(userExistenceFilter.exists("recipient")).thenReturn(true);
 
         // Act & Assert
         UsernameNotFoundException exception = Assertions.assertThrows(UsernameNotFoundException.class, () -> messageService.sendMessage("recipient", "sender", "Hello, world!"));
@@ -90,8 +117,8 @@ class MessageServiceTest {
     @Description("Should throw an exception when the recipient is not found.")
     void sendMessage_ShouldThrowException_WhenRecipientNotFound() {
         // Arrange
-        when(userRepository.existsByUsername("sender")).thenReturn(true);
-        when(userRepository.existsByUsername("recipient")).thenReturn(false);
+        when(userExistenceFilter.exists("sender")).thenReturn(true);
+        when(userExistenceFilter.exists("recipient")).thenReturn(false);
 
         // Act & Assert
         UsernameNotFoundException exception = Assertions.assertThrows(UsernameNotFoundException.class, () -> messageService.sendMessage("recipient", "sender", "Hello, world!"));
@@ -102,27 +129,29 @@ class MessageServiceTest {
     @Description("Should return a list of messages sent by the sender.")
     void getMessagesBySender_ShouldReturnMessageList_WhenSenderExists() {
         // Arrange
-        when(userRepository.existsByUsername("sender")).thenReturn(true);
-        when(messageRepository.findBySender("sender")).thenReturn(List.of(testMessage));
+        when(userExistenceFilter.exists("sender")).thenReturn(true);
+        when(messageRepository.findBySenderOrderByCreatedAtDescIdDesc("sender", PageRequest.of(0, 21)))
+                .thenReturn(List.of(testMessage));
         when(modelMapper.map(testMessage, MessageDto.class)).thenReturn(testMessageDto);
 
         // Act
-        List<MessageDto> result = messageService.getMessagesBySender("sender");
+        PageDto<MessageDto> result = messageService.getMessagesBySender("sender", null, null);
 
         // Assert
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(1, result.size());
-        Assertions.assertEquals("1", result.get(0).getId());
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertEquals("1", result.getItems().get(0).getId());
+        Assertions.assertNull(result.getNextCursor());
     }
 
     @Test
     @Description("Should throw an exception when the sender is not found while fetching messages.")
     void getMessagesBySender_ShouldThrowException_WhenSenderNotFound() {
         // Arrange
-        when(userRepository.existsByUsername("sender")).thenReturn(false);
+        when(userExistenceFilter.exists("sender")).thenReturn(false);
 
         // Act & Assert
-        UsernameNotFoundException exception = Assertions.assertThrows(UsernameNotFoundException.class, () -> messageService.getMessagesBySender("sender"));
+        UsernameNotFoundException exception = Assertions.assertThrows(UsernameNotFoundException.class, () -> messageService.getMessagesBySender("sender", null, null));
         Assertions.assertEquals("Sender sender not found", exception.getMessage());
     }
 
@@ -130,30 +159,117 @@ class MessageServiceTest {
     @Description("Should return a list of messages received by the recipient.")
     void getMessagesByRecipient_ShouldReturnMessageList_WhenRecipientExists() {
         // Arrange
-        when(userRepository.existsByUsername("recipient")).thenReturn(true);
-        when(messageRepository.findByRecipient("recipient")).thenReturn(List.of(testMessage));
+        when(userExistenceFilter.exists("recipient")).thenReturn(true);
+        when(messageRepository.findByRecipientOrderByCreatedAtDescIdDesc("recipient", PageRequest.of(0, 21)))
+                .thenReturn(List.of(testMessage));
         when(modelMapper.map(testMessage, MessageDto.class)).thenReturn(testMessageDto);
 
         // Act
-        List<MessageDto> result = messageService.getMessagesByRecipient("recipient");
+        PageDto<MessageDto> result = messageService.getMessagesByRecipient("recipient", null, null);
 
         // Assert
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(1, result.size());
-        Assertions.assertEquals("1", result.get(0).getId());
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertEquals("1", result.getItems().get(0).getId());
     }
 
     @Test
     @Description("Should throw an exception when the recipient is not found while fetching messages.")
     void getMessagesByRecipient_ShouldThrowException_WhenRecipientNotFound() {
         // Arrange
-        when(userRepository.existsByUsername("recipient")).thenReturn(false);
+        when(userExistenceFilter.exists("recipient")).thenReturn(false);
 
         // Act & Assert
-        UsernameNotFoundException exception = Assertions.assertThrows(UsernameNotFoundException.class, () -> messageService.getMessagesByRecipient("recipient"));
+        UsernameNotFoundException exception = Assertions.assertThrows(UsernameNotFoundException.class, () -> messageService.getMessagesByRecipient("recipient", null, null));
         Assertions.assertEquals("Recipient recipient not found", exception.getMessage());
     }
 
+    @Test
+    @Description("Should continue after the cursor and return the next cursor when more messages exist.")
+    void getMessagesByRecipient_ShouldContinueAfterCursor() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Message older = new Message();
+        older.setId("0");
+        older.setCreatedAt(createdAt.minusMinutes(1));
+        when(userExistenceFilter.exists("recipient")).thenReturn(true);
+        when(messageRepository.findPageByRecipientAfter("recipient", createdAt, "5", PageRequest.of(0, 2)))
+                .thenReturn(List.of(testMessage, older));
+        when(modelMapper.map(testMessage, MessageDto.class)).thenReturn(testMessageDto);
+
+        // Act
+        PageDto<MessageDto> result = messageService.getMessagesByRecipient("recipient", 1, CursorUtils.encode(createdAt, "5"));
+
+        // Assert
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertEquals(CursorUtils.encode(testMessage.getCreatedAt(), "1"), result.getNextCursor());
+    }
+
+    @Test
+    @Description("Should return the conversations of a user from the point of view of that user.")
+    void getConversations_ShouldReturnCounterpartAndOwnUnreadCount() {
+        // Arrange
+        LocalDateTime lastMessageAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Conversation conversation = new Conversation(Conversation.idOf("sender", "recipient"),
+                Conversation.participantsOf("sender", "recipient"), 2, 0, "1", "sender", "Hello", lastMessageAt);
+        Conversation older = new Conversation(Conversation.idOf("sender", "other"),
+                Conversation.participantsOf("sender", "other"), 0, 0, "0", "other", "Hi", lastMessageAt.minusDays(1));
+        when(conversationRepository.findPage("recipient", null, 2)).thenReturn(List.of(conversation, older));
+
+        // Act
+        PageDto<ConversationDto> result = messageService.getConversations("recipient", 1, null);
+
+        // Assert: "recipient" sorts before "sender", so its counter is the first one
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertEquals("sender", result.getItems().get(0).getCounterpart());
+        Assertions.assertEquals(2, result.getItems().get(0).getUnreadCount());
+        Assertions.assertEquals(CursorUtils.encode(lastMessageAt, conversation.getId()), result.getNextCursor());
+    }
+
+    @Test
+    @Description("Should mark messages read up to a message and update the unread counters.")
+    void markReadUpTo_ShouldMarkMessagesAndDecrementCounters() {
+        // Arrange
+        when(messageRepository.findById("1")).thenReturn(Optional.of(testMessage));
+        when(messageRepository.markReadUpTo(eq("recipient"), eq("sender"), eq(testMessage.getCreatedAt()), eq("1"),
+                any(LocalDateTime.class))).thenReturn(3L);
+        when(unreadCounterRepository.count("recipient")).thenReturn(4L);
+
+        // Act
+        UnreadCountDto result = messageService.markReadUpTo("recipient", "1");
+
+        // Assert
+        Assertions.assertEquals(4, result.getUnreadCount());
+        verify(conversationRepository).decrementUnread("recipient", "sender", 3);
+        verify(unreadCounterRepository).decrement("recipient", 3);
+        verify(eventPublisher).publishEvent(any(MessagesReadEvent.class));
+    }
+
+    @Test
+    @Description("Should not touch the counters when no message was unread.")
+    void markConversationRead_ShouldNotDecrementWhenNothingWasUnread() {
+        // Arrange
+        when(messageRepository.markAllRead(eq("recipient"), eq("sender"), any(LocalDateTime.class))).thenReturn(0L);
+
+        // Act
+        messageService.markConversationRead("recipient", "sender");
+
+        // Assert
+        verify(messageRepository).markAllRead(eq("recipient"), eq("sender"), any(LocalDateTime.class));
+        verifyNoInteractions(conversationRepository, unreadCounterRepository, eventPublisher);
+    }
+
+    @Test
+    @Description("Should throw an exception when a user marks a message they did not receive as read.")
+    void markReadUpTo_ShouldThrowException_WhenUserIsNotRecipient() {
+        // Arrange
+        when(messageRepository.findById("1")).thenReturn(Optional.of(testMessage));
+
+        // Act & Assert
+        Assertions.assertThrows(MessageAccessDeniedException.class, () -> messageService.markReadUpTo("sender", "1"));
+        verify(messageRepository, never()).markReadUpTo(any(), any(), any(), any(), any());
+    }
+
     @Test
     @Description("Should return a MessageDto for a given message ID when user has access.")
     void getMessagesById_ShouldReturnMessageDto_WhenUserHasAccess() {
@@ -0,0 +1,147 @@
+package i.service;
+
+import i.event.PostImageProcessedEvent;
+import i.fileStorageClient.FileStorage;
+import i.model.ImageStatus;
+import i.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PostImageUploaderTest {
+
+    private static final Resource IMAGE = new ByteArrayResource(new byte[]{1, 2, 3});
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ImageRenditionGenerator renditionGenerator;
+
+    @Mock
+    private Runnable release;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PostImageUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        uploader = new PostImageUploader(fileStorage, postRepository, eventPublisher, renditionGenerator, meterRegistry,
+                1, 1, 3, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should set the image URL of the post and notify the author once the upload completes")
+    void submit_uploadsInBackground() {
+        when(fileStorage.uploadImage(IMAGE)).thenReturn(Mono.just("http://image.url"));
+
+        assertEquals(true, uploader.submit("post-1", "alice", IMAGE, release));
+
+        verify(postRepository, timeout(5000)).markImageReady("post-1", "http://image.url");
+        verify(eventPublisher, timeout(5000)).publishEvent(
+                new PostImageProcessedEvent("post-1", "alice", ImageStatus.READY, "http://image.url"));
+        // The image is released by the rendition generator once the renditions are done
+        verify(renditionGenerator, timeout(5000)).submit("post-1", IMAGE, release);
+        verify(release, never()).run();
+    }
+
+    @Test
+    @DisplayName("Should retry a failed upload and succeed within the maximum number of attempts")
+    void upload_retriesFailedAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(fileStorage.uploadImage(IMAGE)).thenReturn(Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(new IllegalStateException("Storage unavailable"))
+                : Mono.just("http://image.url")));
+
+        uploader.upload("post-1", "alice", IMAGE, release);
+
+        assertEquals(3, attempts.get());
+        verify(postRepository).markImageReady("post-1", "http://image.url");
+        verify(postRepository, never()).markImageFailed(anyString());
+        assertEquals(2, meterRegistry.counter("posts.image-uploads", "status", "retried").count());
+    }
+
+    @Test
+    @DisplayName("Should mark the image as failed after the maximum number of attempts")
+    void upload_givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(fileStorage.uploadImage(IMAGE)).thenReturn(Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IllegalStateException("Storage unavailable"));
+        }));
+
+        uploader.upload("post-1", "alice", IMAGE, release);
+
+        assertEquals(3, attempts.get());
+        verify(postRepository).markImageFailed("post-1");
+        verify(postRepository, never()).markImageReady(anyString(), anyString());
+        verify(eventPublisher).publishEvent(new PostImageProcessedEvent("post-1", "alice", ImageStatus.FAILED, null));
+        verify(renditionGenerator, never()).submit(anyString(), any(Resource.class), any(Runnable.class));
+        verify(release).run();
+    }
+
+    @Test
+    @DisplayName("Should not retry an image rejected as invalid")
+    void upload_doesNotRetryInvalidImage() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(fileStorage.uploadImage(IMAGE)).thenReturn(Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IllegalArgumentException("Image must not be empty"));
+        }));
+
+        uploader.upload("post-1", "alice", IMAGE, release);
+
+        assertEquals(1, attempts.get());
+        verify(postRepository).markImageFailed("post-1");
+    }
+
+    @Test
+    @DisplayName("Should reject uploads while the queue is full")
+    void submit_rejectsWhenQueueIsFull() throws Exception {
+        // One upload runs and blocks, one waits in the queue of capacity 1
+        when(fileStorage.uploadImage(any(Resource.class))).thenReturn(Mono.never());
+
+        assertEquals(true, uploader.submit("post-1", "alice", IMAGE, release));
+        verify(fileStorage, timeout(5000)).uploadImage(IMAGE);
+        assertEquals(true, uploader.submit("post-2", "alice", IMAGE, release));
+
+        assertEquals(false, uploader.submit("post-3", "alice", IMAGE, release));
+        assertEquals(1, meterRegistry.counter("posts.image-uploads", "status", "rejected").count());
+        // The rejected image is released right away
+        verify(release).run();
+    }
+}
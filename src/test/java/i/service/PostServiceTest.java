@@ -1,29 +1,50 @@
 package i.service;
 
+import i.dto.PageDto;
 import i.dto.PostCreateResponseDto;
 import i.dto.PostDto;
 import i.dto.PostFileUrlDto;
+import i.exception.UnsupportedImageException;
 import i.fileStorageClient.FileStorage;
+import i.fileStorageClient.ImageCache;
+import i.model.ImageRendition;
+import i.model.ImageStatus;
 import i.model.Post;
 import i.repository.PostRepository;
+import i.utils.CursorUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.mockito.ArgumentCaptor;
 import org.springframework.context.annotation.Description;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,6 +52,8 @@ import static org.mockito.Mockito.mock;
 
 class PostServiceTest {
 
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0x0d};
+
     @Mock
     private PostRepository repository;
 
@@ -40,6 +63,15 @@ class PostServiceTest {
     @Mock
     private FileStorage fileStorage;
 
+    @Mock
+    private PostImageUploader imageUploader;
+
+    @Mock
+    private ImageCache imageCache;
+
+    @Mock
+    private ImageRenditionGenerator renditionGenerator;
+
     @InjectMocks
     private PostService postService;
 
@@ -71,11 +103,14 @@ class PostServiceTest {
 
     @Test
     @Description("Should return a PostCreateResponseDto when valid data is provided.")
-    void createPost_ShouldReturnPostCreateResponseDto_WhenValidData() {
+    void createPost_ShouldReturnPostCreateResponseDto_WhenValidData() throws Exception {
         // Arrange
         MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(PNG));
         when(fileStorage.uploadImage(mockFile)).thenReturn(Mono.just("http://image.url"));
+        testPost.setImageUrl("http://image.url");
         when(repository.save(any(Post.class))).thenReturn(testPost);
+        when(fileStorage.localPath("http://image.url")).thenReturn(Optional.of(Path.of("/data/files/ab/cd/abcd")));
         when(mapper.map(testPost, PostCreateResponseDto.class)).thenReturn(testResponseDto);
 
         // Act
@@ -86,23 +121,157 @@ class PostServiceTest {
         assertEquals("1", result.getId());
         assertEquals("Test Title", result.getTitle());
         verify(repository, times(1)).save(any(Post.class));
+        // Renditions are generated from the stored file, the upload is never read into memory
+        ArgumentCaptor<Resource> original = ArgumentCaptor.forClass(Resource.class);
+        verify(renditionGenerator).submit(eq("1"), original.capture());
+        assertEquals(Path.of("/data/files/ab/cd/abcd"), original.getValue().getFile().toPath());
+        verify(mockFile, never()).getBytes();
+    }
+
+    @Test
+    @Description("Should generate renditions from the image cache when the image is stored remotely in synchronous mode.")
+    void createPost_ShouldGenerateRenditionsFromImageCache_WhenStorageIsRemote() throws Exception {
+        // Arrange
+        MockMultipartFile image = new MockMultipartFile("image", "raccoon.png", "image/png", PNG);
+        when(fileStorage.uploadImage(image)).thenReturn(Mono.just("https://i.imgur.com/abc.png"));
+        testPost.setImageUrl("https://i.imgur.com/abc.png");
+        when(repository.save(any(Post.class))).thenReturn(testPost);
+        when(imageCache.get("https://i.imgur.com/abc.png"))
+                .thenReturn(CompletableFuture.completedFuture(Path.of("/data/image-cache/abc-1")));
+
+        // Act
+        postService.createPost("Test Title", "Test Content", image, "user1");
+
+        // Assert
+        ArgumentCaptor<Resource> original = ArgumentCaptor.forClass(Resource.class);
+        verify(renditionGenerator).submit(eq("1"), original.capture());
+        assertEquals(Path.of("/data/image-cache/abc-1"), original.getValue().getFile().toPath());
     }
 
     @Test
-    @Description("Should return a list of posts when list() is called without filters.")
-    void list_ShouldReturnListOfPosts_WhenCalled() {
+    @Description("Should save the post with a pending image and queue the upload in asynchronous mode.")
+    void createPost_ShouldQueueImageUpload_WhenAsync() throws Exception {
         // Arrange
-        when(repository.findAll()).thenReturn(List.of(testPost));
+        ReflectionTestUtils.setField(postService, "asyncImageUpload", true);
+        MockMultipartFile image = new MockMultipartFile("image", "raccoon.png", "image/png", PNG);
+        ArgumentCaptor<Post> saved = ArgumentCaptor.forClass(Post.class);
+        when(repository.save(saved.capture())).thenReturn(testPost);
+        when(imageUploader.submit(eq("1"), eq("user1"), any(Resource.class), any(Runnable.class))).thenReturn(true);
+        when(mapper.map(testPost, PostCreateResponseDto.class)).thenReturn(testResponseDto);
+
+        // Act
+        PostCreateResponseDto result = postService.createPost("Test Title", "Test Content", image, "user1");
+
+        // Assert
+        assertEquals("1", result.getId());
+        assertEquals(ImageStatus.PENDING, saved.getValue().getImageStatus());
+        assertNull(saved.getValue().getImageUrl());
+        ArgumentCaptor<Resource> content = ArgumentCaptor.forClass(Resource.class);
+        ArgumentCaptor<Runnable> release = ArgumentCaptor.forClass(Runnable.class);
+        verify(imageUploader).submit(eq("1"), eq("user1"), content.capture(), release.capture());
+        assertEquals("raccoon.png", content.getValue().getFilename());
+        assertEquals(PNG.length, content.getValue().contentLength());
+        // The image waits for its upload in a file, not in memory, and the file is deleted once released
+        Path spooled = content.getValue().getFile().toPath();
+        assertTrue(Files.exists(spooled));
+        release.getValue().run();
+        assertFalse(Files.exists(spooled));
+        verify(fileStorage, never()).uploadImage(any(MultipartFile.class));
+        verify(repository, never()).markImageFailed(any());
+    }
+
+    @Test
+    @Description("Should mark the image as failed when the upload queue is full.")
+    void createPost_ShouldMarkImageFailed_WhenUploadQueueIsFull() {
+        // Arrange
+        ReflectionTestUtils.setField(postService, "asyncImageUpload", true);
+        MockMultipartFile image = new MockMultipartFile("image", "raccoon.png", "image/png", PNG);
+        when(repository.save(any(Post.class))).thenReturn(testPost);
+        when(imageUploader.submit(eq("1"), eq("user1"), any(Resource.class), any(Runnable.class))).thenReturn(false);
+        when(mapper.map(testPost, PostCreateResponseDto.class)).thenReturn(testResponseDto);
+
+        // Act
+        postService.createPost("Test Title", "Test Content", image, "user1");
+
+        // Assert
+        verify(repository).markImageFailed("1");
+        assertEquals(ImageStatus.FAILED, testPost.getImageStatus());
+    }
+
+    @Test
+    @Description("Should reject an empty image before saving the post in asynchronous mode.")
+    void createPost_ShouldThrowException_WhenImageIsEmpty() {
+        // Arrange
+        ReflectionTestUtils.setField(postService, "asyncImageUpload", true);
+        MockMultipartFile image = new MockMultipartFile("image", "raccoon.png", "image/png", new byte[0]);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> postService.createPost("Test Title", "Test Content", image, "user1"));
+        verify(repository, never()).save(any(Post.class));
+    }
+
+    @Test
+    @Description("Should reject an upload that is not an image, whatever its declared content type.")
+    void createPost_ShouldThrowException_WhenImageIsNotAnImage() {
+        // Arrange
+        MockMultipartFile page = new MockMultipartFile("image", "raccoon.png", "image/png",
+                "<html><script>alert(1)</script></html>".getBytes());
+
+        // Act & Assert
+        ReflectionTestUtils.setField(postService, "asyncImageUpload", true);
+        assertThrows(UnsupportedImageException.class,
+                () -> postService.createPost("Test Title", "Test Content", page, "user1"));
+        ReflectionTestUtils.setField(postService, "asyncImageUpload", false);
+        assertThrows(UnsupportedImageException.class,
+                () -> postService.createPost("Test Title", "Test Content", page, "user1"));
+        verify(fileStorage, never()).uploadImage(any(MultipartFile.class));
+        verify(imageUploader, never()).submit(any(), any(), any(), any());
+        verify(repository, never()).save(any(Post.class));
+    }
+
+    @Test
+    @Description("Should return the first page of posts when list() is called without filters and cursor.")
+    void list_ShouldReturnFirstPageOfPosts_WhenCalled() {
+        // Arrange
+        when(repository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class))).thenReturn(List.of(testPost));
         when(mapper.map(testPost, PostDto.class)).thenReturn(testPostDto);
 
         // Act
-        List<PostDto> result = postService.list(null);
+        PageDto<PostDto> result = postService.list(null, null, null);
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("1", result.get(0).getId());
-        verify(repository, times(1)).findAll();
+        assertEquals(1, result.getItems().size());
+        assertEquals("1", result.getItems().get(0).getId());
+        assertNull(result.getNextCursor());
+        verify(repository, times(1)).findAllByOrderByCreatedAtDescIdDesc(PageRequest.of(0, CursorUtils.DEFAULT_PAGE_SIZE + 1));
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    @Description("Should continue after the cursor and return the next cursor when more posts exist.")
+    void list_ShouldReturnNextCursor_WhenMorePostsExist() {
+        // Arrange
+        Post olderPost = new Post();
+        olderPost.setId("2");
+        olderPost.setUsername("user1");
+        olderPost.setCreatedAt(testPost.getCreatedAt().minusMinutes(1));
+        String cursor = CursorUtils.encode(testPost.getCreatedAt().plusMinutes(1), "0");
+
+        when(repository.findPageByUsernameAfter(eq("user1"), any(LocalDateTime.class), eq("0"), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(testPost, olderPost));
+        when(mapper.map(testPost, PostDto.class)).thenReturn(testPostDto);
+
+        // Act
+        PageDto<PostDto> result = postService.list("user1", 1, cursor);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertEquals("1", result.getItems().get(0).getId());
+        CursorUtils.Keyset next = CursorUtils.decode(result.getNextCursor());
+        assertEquals(testPost.getCreatedAt(), next.getCreatedAt());
+        assertEquals("1", next.getId());
     }
 
     @Test
@@ -171,4 +340,72 @@ class PostServiceTest {
         RuntimeException exception = assertThrows(RuntimeException.class, () -> postService.getImageUrlByPostId("1"));
         assertEquals("Post not found with ID: 1", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @Description("Should serve an image of the local storage in place, without the image cache.")
+    void getImage_ShouldReturnLocalPath_WhenStoredLocally() {
+        // Arrange
+        testPost.setImageUrl("http://localhost/api/files/abc");
+        when(repository.findById("1")).thenReturn(Optional.of(testPost));
+        when(fileStorage.localPath("http://localhost/api/files/abc")).thenReturn(Optional.of(Path.of("/files/abc")));
+
+        // Act
+        Path result = postService.getImage("1", null).join();
+
+        // Assert
+        assertEquals(Path.of("/files/abc"), result);
+        verify(imageCache, never()).get(any());
+    }
+
+    @Test
+    @Description("Should serve a remote image through the image cache.")
+    void getImage_ShouldUseImageCache_WhenStoredRemotely() {
+        // Arrange
+        testPost.setImageUrl("https://i.imgur.com/abc.png");
+        when(repository.findById("1")).thenReturn(Optional.of(testPost));
+        when(fileStorage.localPath("https://i.imgur.com/abc.png")).thenReturn(Optional.empty());
+        when(imageCache.get("https://i.imgur.com/abc.png"))
+                .thenReturn(CompletableFuture.completedFuture(Path.of("/cache/abc")));
+
+        // Act
+        Path result = postService.getImage("1", null).join();
+
+        // Assert
+        assertEquals(Path.of("/cache/abc"), result);
+    }
+
+    @Test
+    @Description("Should throw an exception when the post has no image.")
+    void getImage_ShouldThrowException_WhenImageUrlDoesNotExist() {
+        // Arrange
+        when(repository.findById("1")).thenReturn(Optional.of(testPost));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> postService.getImage("1", null));
+        verify(imageCache, never()).get(any());
+    }
+
+    @Test
+    @Description("Should serve the smallest rendition at least as wide as requested, or the original.")
+    void getImage_ShouldSelectRendition_WhenWidthRequested() {
+        // Arrange
+        testPost.setImageUrl("https://i.imgur.com/original.png");
+        testPost.setRenditions(List.of(
+                new ImageRendition(160, 80, "https://i.imgur.com/160.jpg"),
+                new ImageRendition(480, 240, "https://i.imgur.com/480.jpg")));
+        when(repository.findById("1")).thenReturn(Optional.of(testPost));
+        when(fileStorage.localPath(any())).thenReturn(Optional.empty());
+        when(imageCache.get(any())).thenReturn(CompletableFuture.completedFuture(Path.of("/cache/abc")));
+
+        // Act
+        postService.getImage("1", 100);
+        postService.getImage("1", 160);
+        postService.getImage("1", 300);
+        postService.getImage("1", 1000);
+
+        // Assert
+        verify(imageCache, times(2)).get("https://i.imgur.com/160.jpg");
+        verify(imageCache).get("https://i.imgur.com/480.jpg");
+        verify(imageCache).get("https://i.imgur.com/original.png");
+    }
+}
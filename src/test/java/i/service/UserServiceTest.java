@@ -1,11 +1,19 @@
 package i.service;
 
+import i.config.IndexInitializer;
 import i.dto.UserCreateRequestDto;
+import i.dto.PageDto;
 import i.dto.UserDto;
+import i.dto.UserSummaryDto;
+import i.event.UserRegisteredEvent;
 import i.model.Role;
 import i.model.User;
 import i.repository.RoleRepository;
 import i.repository.UserRepository;
+import i.search.UsernameFuzzyIndex;
+import i.search.UsernameSearchIndex;
+import i.security.RoleCatalog;
+import i.utils.CursorUtils;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,8 +25,14 @@ import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Assertions;
@@ -40,6 +54,20 @@ class UserServiceTest {
     @MockBean
     private RoleRepository roleRepository;
 
+    private RoleCatalog roleCatalog;
+
+    @MockBean
+    private UsernameSearchIndex usernameSearchIndex;
+
+    @MockBean
+    private UsernameFuzzyIndex usernameFuzzyIndex;
+
+    @MockBean
+    private ApplicationEventPublisher eventPublisher;
+
+    @MockBean
+    private IndexInitializer indexInitializer;
+
     @InjectMocks
     private UserService userService;
 
@@ -57,7 +85,12 @@ class UserServiceTest {
         user.setEmail("test@example.com");
         user.setEmailVerified(false);
 
-        userService = new UserService(userRepository, roleRepository, modelMapper, emailService);
+        Mockito.clearInvocations(roleRepository);
+        roleCatalog = new RoleCatalog(roleRepository);
+        roleCatalog.register(new Role("ROLE_USER"));
+        Mockito.when(indexInitializer.isUniqueIndexReady(Mockito.eq(User.class), Mockito.anyString())).thenReturn(true);
+
+        userService = new UserService(userRepository, roleCatalog, modelMapper, emailService, usernameSearchIndex, usernameFuzzyIndex, eventPublisher, indexInitializer);
     }
 
     @Test
@@ -66,12 +99,10 @@ class UserServiceTest {
         // Create test data
         UserCreateRequestDto userCreateRequestDto = new UserCreateRequestDto("testuser", "test@example.com", null, new HashSet<>());
 
-        // Mock the return of the role when searching by name
-        Mockito.when(roleRepository.findByName("ROLE_USER")).thenReturn(Optional.of(new Role("ROLE_USER")));
-        Mockito.when(userRepository.save(Mockito.any(User.class))).thenReturn(user);
+        Mockito.when(userRepository.insert(Mockito.any(User.class))).thenReturn(user);
 
         // Create an instance of UserService with mocks
-        UserService userService = new UserService(userRepository, roleRepository, modelMapper, emailService);
+        UserService userService = new UserService(userRepository, roleCatalog, modelMapper, emailService, usernameSearchIndex, usernameFuzzyIndex, eventPublisher, indexInitializer);
 
         // Perform the test action
         UserDto result = userService.save(userCreateRequestDto);
@@ -80,35 +111,74 @@ class UserServiceTest {
         Assertions.assertNotNull(result);
         Assertions.assertEquals("testuser", result.getUsername());
         Assertions.assertEquals("test@example.com", result.getEmail());
+
+        // The new user is announced to the username indexes
+        Mockito.verify(eventPublisher).publishEvent(Mockito.any(UserRegisteredEvent.class));
+
+        // Roles are validated against the catalog without querying the database
+        Mockito.verifyNoInteractions(roleRepository);
+
+        // The confirmation email is queued, not sent while registering
+        Mockito.verify(emailService).queueConfirmationEmail(Mockito.eq("test@example.com"), Mockito.anyString());
     }
 
     @Test
     @DisplayName("Should throw IllegalArgumentException when username already exists")
     void save_usernameAlreadyExists() {
-        // Mock behavior for an existing username
-        Mockito.when(userRepository.findByUsername(userCreateRequestDto.getUsername())).thenReturn(Optional.of(user));
+        // Mock the unique index on username rejecting the insert
+        Mockito.when(userRepository.insert(Mockito.any(User.class))).thenThrow(new DuplicateKeyException(
+                "E11000 duplicate key error collection: raccoon.users index: username_unique dup key: { username: \"testuser\" }"));
 
         // Assert that the exception is thrown
-        Assertions.assertThrows(IllegalArgumentException.class, () -> userService.save(userCreateRequestDto));
-
-        // Verify interactions with the repository
-        Mockito.verify(userRepository).findByUsername("testuser");
-        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> userService.save(userCreateRequestDto));
+        Assertions.assertEquals("Username already exists: testuser", exception.getMessage());
+
+        // Uniqueness is not checked with separate queries, and nothing is announced or emailed
+        Mockito.verify(userRepository, Mockito.never()).findByUsername(Mockito.any());
+        Mockito.verify(userRepository, Mockito.never()).findByEmail(Mockito.any());
+        Mockito.verify(userRepository, Mockito.never()).existsByUsername(Mockito.any());
+        Mockito.verify(userRepository, Mockito.never()).existsByEmail(Mockito.any());
+        Mockito.verifyNoInteractions(eventPublisher, emailService);
     }
 
     @Test
     @DisplayName("Should throw IllegalArgumentException when email already exists")
     void save_emailAlreadyExists() {
-        // Mock behavior for an existing email
-        Mockito.when(userRepository.findByUsername(userCreateRequestDto.getUsername())).thenReturn(Optional.empty());
-        Mockito.when(userRepository.findByEmail(userCreateRequestDto.getEmail())).thenReturn(Optional.of(user));
+        // Mock the unique index on email rejecting the insert
+        Mockito.when(userRepository.insert(Mockito.any(User.class))).thenThrow(new DuplicateKeyException(
+                "E11000 duplicate key error collection: raccoon.users index: email_unique dup key: { email: \"test@example.com\" }"));
 
         // Assert that the exception is thrown
-        Assertions.assertThrows(IllegalArgumentException.class, () -> userService.save(userCreateRequestDto));
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> userService.save(userCreateRequestDto));
+        Assertions.assertEquals("Email already exists: test@example.com", exception.getMessage());
+        Mockito.verifyNoInteractions(eventPublisher, emailService);
+    }
 
-        // Verify interactions with the repository
-        Mockito.verify(userRepository).findByEmail("test@example.com");
-        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
+    @Test
+    @DisplayName("Should reject a taken username before inserting while the unique indexes are not ready")
+    void save_usernameAlreadyExists_beforeUniqueIndexesAreReady() {
+        Mockito.when(indexInitializer.isUniqueIndexReady(User.class, User.USERNAME_INDEX)).thenReturn(false);
+        Mockito.when(userRepository.existsByUsername("testuser")).thenReturn(true);
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> userService.save(userCreateRequestDto));
+        Assertions.assertEquals("Username already exists: testuser", exception.getMessage());
+        Mockito.verify(userRepository, Mockito.never()).insert(Mockito.any(User.class));
+        Mockito.verifyNoInteractions(eventPublisher, emailService);
+    }
+
+    @Test
+    @DisplayName("Should reject a taken email before inserting while the unique indexes are not ready")
+    void save_emailAlreadyExists_beforeUniqueIndexesAreReady() {
+        Mockito.when(indexInitializer.isUniqueIndexReady(User.class, User.EMAIL_INDEX)).thenReturn(false);
+        Mockito.when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> userService.save(userCreateRequestDto));
+        Assertions.assertEquals("Email already exists: test@example.com", exception.getMessage());
+        Mockito.verify(userRepository, Mockito.never()).insert(Mockito.any(User.class));
     }
 
     @Test
@@ -147,4 +217,78 @@ class UserServiceTest {
         Mockito.verify(userRepository).findByConfirmationToken(invalidToken);
         Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should search usernames in the index once it is loaded")
+    void getUsernamesListBySubstring_usesIndex() {
+        UserSummaryDto summary = new UserSummaryDto("1", "testuser", null);
+        Mockito.when(usernameSearchIndex.isLoaded()).thenReturn(true);
+        Mockito.when(usernameSearchIndex.search("test", 20)).thenReturn(List.of(summary));
+
+        List<UserSummaryDto> result = userService.getUsernamesListBySubstring("test", null);
+
+        Assertions.assertEquals(List.of(summary), result);
+        Mockito.verify(userRepository, Mockito.never()).findAll();
+        Mockito.verify(userRepository, Mockito.never()).findByUsernameMatching(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Should search usernames in the database while the index is loading")
+    void getUsernamesListBySubstring_fallsBackToDatabase() {
+        Mockito.when(usernameSearchIndex.isLoaded()).thenReturn(false);
+        Mockito.when(userRepository.findByUsernameMatching(Mockito.eq("\\Qte.st\\E"), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(user));
+
+        List<UserSummaryDto> result = userService.getUsernamesListBySubstring(" te.st ", 5);
+
+        Assertions.assertEquals(1, result.size());
+        Assertions.assertEquals("testuser", result.get(0).getUsername());
+        Mockito.verify(usernameSearchIndex, Mockito.never()).search(Mockito.anyString(), Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("Should clamp the edit distance of username suggestions")
+    void suggestUsernames_clampsDistance() {
+        UserSummaryDto summary = new UserSummaryDto("1", "testuser", null);
+        Mockito.when(usernameFuzzyIndex.isLoaded()).thenReturn(true);
+        Mockito.when(usernameFuzzyIndex.search("tsetuser", 2, 20)).thenReturn(List.of(summary));
+        Mockito.when(usernameFuzzyIndex.search("tsetuser", 1, 5)).thenReturn(List.of());
+
+        Assertions.assertEquals(List.of(summary), userService.suggestUsernames("tsetuser", 7, null));
+        Assertions.assertEquals(List.of(), userService.suggestUsernames("tsetuser", 0, 5));
+        Mockito.verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Should list the first page of users from the projected query")
+    void list_firstPage() {
+        User older = new User();
+        older.setId("2");
+        older.setUsername("older");
+        older.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        User newer = new User();
+        newer.setId("3");
+        newer.setUsername("newer");
+        newer.setCreatedAt(LocalDateTime.of(2024, 2, 1, 0, 0));
+        Mockito.when(userRepository.findSummaryPage(PageRequest.of(0, 2))).thenReturn(List.of(newer, older));
+
+        PageDto<UserSummaryDto> page = userService.list(1, null);
+
+        Assertions.assertEquals(1, page.getItems().size());
+        Assertions.assertEquals("newer", page.getItems().get(0).getUsername());
+        Assertions.assertEquals(CursorUtils.encode(newer.getCreatedAt(), "3"), page.getNextCursor());
+        Mockito.verify(userRepository, Mockito.never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should list the next page of users after the cursor")
+    void list_nextPage() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 2, 1, 0, 0);
+        Mockito.when(userRepository.findSummaryPageAfter(createdAt, "3", PageRequest.of(0, 21))).thenReturn(List.of(user));
+
+        PageDto<UserSummaryDto> page = userService.list(null, CursorUtils.encode(createdAt, "3"));
+
+        Assertions.assertEquals(1, page.getItems().size());
+        Assertions.assertNull(page.getNextCursor());
+    }
+}
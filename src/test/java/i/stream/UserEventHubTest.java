@@ -0,0 +1,170 @@
+package i.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class UserEventHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService senders = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        senders.shutdownNow();
+    }
+
+    @Test
+    @Description("Test that published events are written to the streams of the user only")
+    void publish_ShouldWriteEventsToStreamsOfUser() throws Exception {
+        UserEventHub hub = new UserEventHub(meterRegistry, 16, 5, Duration.ofMinutes(1), senders);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(hub)).build();
+
+        MvcResult result = mockMvc.perform(get("/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        hub.publish("bob", "message", Map.of("content", "not for alice"));
+        hub.publish("alice", "message", Map.of("content", "hi"));
+
+        String content = awaitContent(result, "hi");
+        assertTrue(content.contains(":connected"));
+        assertTrue(content.contains("event:message\ndata:{\"content\":\"hi\"}"));
+        assertFalse(content.contains("not for alice"));
+        assertEquals(1, hub.subscriberCount());
+    }
+
+    @Test
+    @Description("Test that a subscriber whose buffer is full is disconnected")
+    void publish_ShouldEvictSlowSubscriber() throws Exception {
+        // Keep the only sender thread busy, so that nothing is written
+        CountDownLatch release = new CountDownLatch(1);
+        senders.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        UserEventHub hub = new UserEventHub(meterRegistry, 2, 5, Duration.ofMinutes(1), senders);
+        hub.subscribe("alice");
+
+        hub.publish("alice", "message", "first");
+        assertEquals(1, hub.subscriberCount());
+        hub.publish("alice", "message", "second");
+
+        assertEquals(0, hub.subscriberCount());
+        assertEquals(1.0, meterRegistry.counter("messages.stream.evictions").count());
+        release.countDown();
+    }
+
+    @Test
+    @Description("Test that the oldest stream of a user is closed beyond the limit")
+    void subscribe_ShouldLimitStreamsPerUser() {
+        UserEventHub hub = new UserEventHub(meterRegistry, 16, 2, Duration.ofMinutes(1), senders);
+
+        hub.subscribe("alice");
+        hub.subscribe("alice");
+        hub.subscribe("alice");
+        hub.subscribe("bob");
+
+        assertEquals(3, hub.subscriberCount());
+    }
+
+    @Test
+    @Description("Test that a stream opened while the last stream of the user closes is never orphaned")
+    void subscribe_ShouldNotOrphanStream_WhenLastStreamClosesConcurrently() {
+        // Keep the only sender thread busy, so that written events stay in the buffers
+        CountDownLatch release = new CountDownLatch(1);
+        senders.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicReference<UserEventHub> hub = new AtomicReference<>();
+        AtomicBoolean armed = new AtomicBoolean();
+        // Evicts the last stream of the user right after the map lookup of the next subscribe
+        ConcurrentHashMap<String, Set<UserEventHub.Subscriber>> subscribers = new ConcurrentHashMap<>() {
+            @Override
+            public Set<UserEventHub.Subscriber> computeIfAbsent(String key,
+                    Function<? super String, ? extends Set<UserEventHub.Subscriber>> mapping) {
+                return closeLastStream(super.computeIfAbsent(key, mapping));
+            }
+
+            @Override
+            public Set<UserEventHub.Subscriber> compute(String key,
+                    BiFunction<? super String, ? super Set<UserEventHub.Subscriber>, ? extends Set<UserEventHub.Subscriber>> remapping) {
+                return closeLastStream(super.compute(key, remapping));
+            }
+
+            private Set<UserEventHub.Subscriber> closeLastStream(Set<UserEventHub.Subscriber> result) {
+                if (armed.compareAndSet(true, false)) {
+                    hub.get().publish("alice", "message", "evicts the full stream");
+                }
+                return result;
+            }
+        };
+        hub.set(new UserEventHub(meterRegistry, 1, 5, Duration.ofMinutes(1), senders, subscribers));
+
+        // The buffer of the first stream is full with its "connected" comment
+        hub.get().subscribe("alice");
+        armed.set(true);
+        hub.get().subscribe("alice");
+        assertEquals(1, hub.get().subscriberCount());
+
+        // The new stream is reachable: its buffer fills up, and the next publish evicts it
+        hub.get().publish("alice", "message", "evicts the full stream");
+        assertEquals(0, hub.get().subscriberCount());
+        release.countDown();
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    @RestController
+    static class StreamController {
+        private final UserEventHub hub;
+
+        StreamController(UserEventHub hub) {
+            this.hub = hub;
+        }
+
+        @GetMapping("/stream")
+        SseEmitter stream() {
+            return hub.subscribe("alice");
+        }
+    }
+}
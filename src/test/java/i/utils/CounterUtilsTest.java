@@ -0,0 +1,22 @@
+package i.utils;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CounterUtilsTest {
+
+    @Test
+    @Description("Test that the decrement is a pipeline update that never goes below zero")
+    void decrement_ShouldClampAtZero() {
+        List<Document> pipeline = CounterUtils.decrement("count", 3).toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertEquals(List.of(Document.parse("{ '$set': { 'count': { '$max': [ { '$numberLong': '0' }, { '$subtract': [ '$count', { '$numberLong': '3' } ] } ] } } }")),
+                pipeline);
+    }
+}
@@ -0,0 +1,56 @@
+package i.utils;
+
+import i.dto.PageDto;
+import i.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Description;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorUtilsTest {
+
+    @Test
+    @Description("Test that a decoded cursor returns the key it was encoded from")
+    void decode_ShouldReturnEncodedKey() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 12, 10, 10, 0, 0, 123_000_000);
+
+        CursorUtils.Keyset keyset = CursorUtils.decode(CursorUtils.encode(createdAt, "post|1"));
+
+        assertEquals(createdAt, keyset.getCreatedAt());
+        assertEquals("post|1", keyset.getId());
+    }
+
+    @Test
+    @Description("Test that a missing cursor means the first page and a malformed one is rejected")
+    void decode_ShouldHandleMissingAndMalformedCursor() {
+        assertNull(CursorUtils.decode(null));
+        assertNull(CursorUtils.decode(" "));
+        assertThrows(InvalidCursorException.class, () -> CursorUtils.decode("not-a-cursor"));
+    }
+
+    @Test
+    @Description("Test that the page size falls back to the default and is capped")
+    void normalizeLimit_ShouldClampPageSize() {
+        assertEquals(CursorUtils.DEFAULT_PAGE_SIZE, CursorUtils.normalizeLimit(null));
+        assertEquals(CursorUtils.DEFAULT_PAGE_SIZE, CursorUtils.normalizeLimit(0));
+        assertEquals(5, CursorUtils.normalizeLimit(5));
+        assertEquals(CursorUtils.MAX_PAGE_SIZE, CursorUtils.normalizeLimit(10_000));
+    }
+
+    @Test
+    @Description("Test that the extra fetched row is dropped and turned into the next cursor")
+    void toPage_ShouldDropExtraRowAndSetNextCursor() {
+        PageDto<String> page = CursorUtils.toPage(List.of("a", "b", "c"), 2, String::toUpperCase, row -> "after-" + row);
+        PageDto<String> lastPage = CursorUtils.toPage(List.of("a"), 2, String::toUpperCase, row -> "after-" + row);
+
+        assertEquals(List.of("A", "B"), page.getItems());
+        assertEquals("after-b", page.getNextCursor());
+        assertEquals(List.of("A"), lastPage.getItems());
+        assertNull(lastPage.getNextCursor());
+    }
+}